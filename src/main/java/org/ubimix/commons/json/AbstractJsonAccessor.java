@@ -54,6 +54,9 @@ public abstract class AbstractJsonAccessor implements IJsonAccessor {
      * @see org.ubimix.commons.json.IJsonAccessor#toDouble(java.lang.Object)
      */
     public double toDouble(Object value) {
+        if (value instanceof JsonNumber) {
+            return ((JsonNumber) value).doubleValue();
+        }
         if (!(value instanceof Double)) {
             return 0;
         }
@@ -64,6 +67,9 @@ public abstract class AbstractJsonAccessor implements IJsonAccessor {
      * @see org.ubimix.commons.json.IJsonAccessor#toInteger(java.lang.Object)
      */
     public int toInteger(Object value) {
+        if (value instanceof JsonNumber) {
+            return ((JsonNumber) value).intValue();
+        }
         if (!(value instanceof Integer)) {
             return 0;
         }
@@ -74,6 +80,9 @@ public abstract class AbstractJsonAccessor implements IJsonAccessor {
      * @see org.ubimix.commons.json.IJsonAccessor#toLong(java.lang.Object)
      */
     public long toLong(Object value) {
+        if (value instanceof JsonNumber) {
+            return ((JsonNumber) value).longValue();
+        }
         if (!(value instanceof Long)) {
             return 0;
         }
@@ -13,335 +13,1336 @@
 package org.ubimix.commons.json;
 
 /**
+ * This is the common superclass of all JSON parsers. It reads characters
+ * returned by the {@link #getChar()} and {@link #incPos()} methods and splits
+ * them in tokens. Tokens are either returned one by one by the
+ * {@link #nextToken()} method ("pull" mode, see {@link JsonReader}) or
+ * transformed in calls of an {@link IJsonListener} by the
+ * {@link #doParse(IJsonListener)} method ("push" mode). The state of nested
+ * objects and arrays is kept in an explicit stack.
+ * 
  * @author kotelnikov
  */
 public abstract class AbstractJsonParser {
 
-    protected static abstract class CharChecker {
+    /**
+     * Character class: a quotation mark
+     */
+    protected static final byte QUOT = 1 << 0;
+
+    /**
+     * Character class: a white space
+     */
+    protected static final byte SPACE = 1 << 1;
+
+    /**
+     * Character class: symbols terminating non-quoted property names
+     */
+    protected static final byte TOKEN_END = 1 << 2;
+
+    /**
+     * Character class: symbols terminating non-quoted values
+     */
+    protected static final byte VALUE_END = 1 << 3;
+
+    /**
+     * Classes of ASCII characters. All other characters have no class.
+     */
+    private static final byte[] TYPES = new byte[128];
+
+    /**
+     * Suspended operation: no operation is suspended
+     */
+    private static final int PENDING_NONE = 0;
+
+    /**
+     * Suspended operation: reading of a property name
+     */
+    private static final int PENDING_KEY = 1;
+
+    /**
+     * Suspended operation: skipping spaces after a property name
+     */
+    private static final int PENDING_KEY_END = 2;
+
+    /**
+     * Suspended operation: skipping the content of the current container
+     */
+    private static final int PENDING_SKIP_CONTENT = 3;
+
+    /**
+     * Suspended operation: skipping a raw object or array value
+     */
+    private static final int PENDING_SKIP_CONTAINER = 4;
+
+    /**
+     * Suspended operation: skipping a raw quoted value
+     */
+    private static final int PENDING_SKIP_STRING = 5;
+
+    /**
+     * Suspended operation: skipping a raw non-quoted value
+     */
+    private static final int PENDING_SKIP_TOKEN = 6;
+
+    /**
+     * Suspended operation: reading of a value
+     */
+    private static final int PENDING_VALUE = 7;
+
+    /**
+     * Tokenizer state: expecting an array element or the end of the array
+     */
+    private static final int STATE_ARRAY = 1;
+
+    /**
+     * Tokenizer state: after an array element
+     */
+    private static final int STATE_ARRAY_NEXT = 2;
+
+    /**
+     * Tokenizer state: the document is finished
+     */
+    private static final int STATE_END = 3;
+
+    /**
+     * Tokenizer state: expecting a property name or the end of the object
+     */
+    private static final int STATE_OBJECT = 4;
+
+    /**
+     * Tokenizer state: after a property value
+     */
+    private static final int STATE_OBJECT_NEXT = 5;
+
+    /**
+     * Tokenizer state: after a property name
+     */
+    private static final int STATE_OBJECT_VALUE = 6;
+
+    /**
+     * Tokenizer state: before the beginning of the document
+     */
+    private static final int STATE_START = 0;
+
+    /**
+     * The maximal number of remembered property names for each level of
+     * nested objects
+     */
+    private static final int MAX_SHAPE_SIZE = 64;
+
+    static {
+        TYPES['\''] = QUOT;
+        TYPES['"'] = QUOT;
+        TYPES[' '] = SPACE | TOKEN_END;
+        TYPES['\t'] = SPACE | TOKEN_END;
+        TYPES['\n'] = SPACE | TOKEN_END;
+        TYPES['\r'] = SPACE | TOKEN_END;
+        TYPES['{'] = TOKEN_END;
+        TYPES['['] = TOKEN_END;
+        TYPES[':'] = TOKEN_END;
+        TYPES['}'] = TOKEN_END | VALUE_END;
+        TYPES[']'] = TOKEN_END | VALUE_END;
+        TYPES[','] = TOKEN_END | VALUE_END;
+    }
+
+    /**
+     * Returns <code>true</code> if the given character belongs to one of the
+     * specified classes.
+     */
+    protected static boolean is(char ch, byte type) {
+        return ch < 128 && (TYPES[ch] & type) != 0;
+    }
+
+    private boolean fBoolean;
+
+    /**
+     * Types of opened containers; <code>true</code> for arrays and
+     * <code>false</code> for objects.
+     */
+    private boolean[] fContainers = new boolean[16];
+
+    /**
+     * The number of opened containers
+     */
+    private int fDepth;
+
+    /**
+     * This flag is <code>true</code> when a backslash was read and the
+     * escaped character is not read yet.
+     */
+    private boolean fEscape;
+
+    /**
+     * Buffers used to read property names; one buffer for each level of
+     * nested containers.
+     */
+    private TextBuffer[] fKeys = new TextBuffer[16];
+
+    /**
+     * If this flag is <code>true</code> then numbers are reported as raw text
+     * to {@link IJsonNumberListener} instances.
+     */
+    private boolean fLazyNumbers;
+
+    /**
+     * Property names reported to the listener in the "push" mode
+     */
+    private String[] fNames = new String[16];
+
+    private final JsonNumberParser fNumberParser = new JsonNumberParser();
+
+    /**
+     * If this flag is <code>false</code> then non-quoted values are not
+     * recognized as numbers; all of them are returned as
+     * {@link JsonToken#DOUBLE} tokens.
+     */
+    private boolean fNumberTypes = true;
+
+    /**
+     * The operation suspended when the stream was starved in the middle of a
+     * token (see {@link #isStarved()}); it is resumed by the next call of the
+     * {@link #nextToken()} method.
+     */
+    private int fPending = PENDING_NONE;
+
+    /**
+     * The quotation mark of the suspended token or '\0' for non-quoted tokens
+     */
+    private char fPendingQuot;
+
+    /**
+     * The name of the current property returned by the
+     * {@link #getPropertyName()} method
+     */
+    private String fPropertyName;
+
+    private int fSavedDepth;
+
+    private boolean fSavedSkip;
+
+    private int fSavedState;
+
+    private JsonToken fSavedToken;
+
+    /**
+     * The number of property names already returned for the current object
+     * on each level of nesting
+     */
+    private int[] fShapePositions = new int[16];
+
+    /**
+     * Property names of the last objects on each level of nesting. Objects in
+     * arrays of records usually have the same properties in the same order,
+     * so the name of the next property is compared with the name in the same
+     * position of the previous object before looking it up in the symbol
+     * table.
+     */
+    private String[][] fShapes = new String[16][];
+
+    /**
+     * This flag is set by the {@link #skipValue()} method
+     */
+    private boolean fSkip;
+
+    /**
+     * The number of nested containers opened in the skipped content
+     */
+    private int fSkipDepth;
+
+    /**
+     * This flag is <code>true</code> if the next skipped character is escaped
+     */
+    private boolean fSkipEscape;
+
+    /**
+     * The quotation mark of the skipped string or '\0' outside of strings
+     */
+    private char fSkipQuot;
+
+    /**
+     * This flag is <code>true</code> if the next skipped character can start
+     * a quoted string
+     */
+    private boolean fSkipTokenStart;
+
+    private int fState;
+
+    private JsonToken fToken;
+
+    /**
+     * The table used to intern property names. The default table is created
+     * only when the first property name is read, so parsers of documents
+     * without objects do not allocate it.
+     */
+    private JsonSymbolTable fSymbols;
+
+    /**
+     * This flag is <code>false</code> if property names are not interned
+     * (see {@link #setSymbolTable(JsonSymbolTable)})
+     */
+    private boolean fSymbolsEnabled = true;
+
+    /**
+     * The value of the unicode escape sequence being read
+     */
+    private int fUnicodeCode;
+
+    /**
+     * The number of hexadecimal digits already read in the current unicode
+     * escape sequence or -1 if no unicode sequence is read
+     */
+    private int fUnicodeDigits = -1;
+
+    private final TextBuffer fValue = new TextBuffer();
+
+    public AbstractJsonParser() {
+    }
+
+    /**
+     * Notifies the listener about the beginning of a new value.
+     */
+    private void beginValue(IJsonListener listener, int depth) {
+        if (depth > 0 && fContainers[depth - 1]) {
+            listener.beginArrayElement();
+        }
+    }
+
+    /**
+     * Parses the whole document and notifies the given listener about all
+     * found elements.
+     * 
+     * @param listener the listener to notify
+     */
+    protected void doParse(IJsonListener listener) {
+        reset();
+        JsonToken token;
+        while ((token = nextToken()) != JsonToken.END) {
+            fireToken(token, listener);
+        }
+    }
+
+    /**
+     * Parses the next top-level object or array starting from the current
+     * position. This method allows to read a sequence of concatenated
+     * documents (like newline-delimited JSON) from the same stream without
+     * splitting it. Subclasses should call the {@link #reset()} method before
+     * the first document of the stream.
+     * 
+     * @param listener the listener to notify
+     * @return <code>true</code> if a new document was found and
+     *         <code>false</code> if the stream does not contain documents
+     *         anymore
+     */
+    protected boolean doParseNext(IJsonListener listener) {
+        if (fState == STATE_END) {
+            fState = STATE_START;
+        }
+        JsonToken token = nextToken();
+        if (token == JsonToken.END) {
+            return false;
+        }
+        do {
+            fireToken(token, listener);
+        } while ((token = nextToken()) != JsonToken.END);
+        return true;
+    }
+
+    /**
+     * Notifies the listener about the end of a value in the current container.
+     */
+    private void endValue(
+        IJsonListener listener,
+        IJsonCharSequenceListener sequenceListener) {
+        if (fDepth == 0) {
+            return;
+        }
+        int idx = fDepth - 1;
+        if (fContainers[idx]) {
+            listener.endArrayElement();
+        } else if (sequenceListener != null) {
+            sequenceListener.endObjectProperty(fKeys[idx]);
+        } else {
+            String property = fNames[idx];
+            fNames[idx] = null;
+            listener.endObjectProperty(property);
+        }
+    }
+
+    /**
+     * Reports the text of the current number to the given listener if the
+     * "lazy numbers" mode is active and the listener accepts raw numbers.
+     * 
+     * @return <code>true</code> if the number was reported
+     */
+    private boolean fireNumber(IJsonListener listener) {
+        if (!fLazyNumbers || !(listener instanceof IJsonNumberListener)) {
+            return false;
+        }
+        ((IJsonNumberListener) listener).onNumber(fValue);
+        return true;
+    }
+
+    /**
+     * Notifies the listener about the given token just returned by the
+     * {@link #nextToken()} method.
+     * 
+     * @param token the token to report
+     * @param listener the listener to notify
+     */
+    protected void fireToken(JsonToken token, IJsonListener listener) {
+        IJsonCharSequenceListener sequenceListener = null;
+        if (listener instanceof IJsonCharSequenceListener) {
+            sequenceListener = (IJsonCharSequenceListener) listener;
+        }
+        switch (token) {
+            case BEGIN_ARRAY:
+                beginValue(listener, fDepth - 1);
+                listener.beginArray();
+                break;
+            case BEGIN_OBJECT:
+                beginValue(listener, fDepth - 1);
+                listener.beginObject();
+                break;
+            case END_ARRAY:
+                listener.endArray();
+                endValue(listener, sequenceListener);
+                break;
+            case END_OBJECT:
+                listener.endObject();
+                endValue(listener, sequenceListener);
+                break;
+            case SKIPPED:
+                endValue(listener, sequenceListener);
+                break;
+            case PROPERTY:
+                if (sequenceListener != null) {
+                    sequenceListener.beginObjectProperty(fKeys[fDepth - 1]);
+                } else {
+                    String property = getPropertyName();
+                    fNames[fDepth - 1] = property;
+                    listener.beginObjectProperty(property);
+                }
+                break;
+            default:
+                beginValue(listener, fDepth);
+                switch (token) {
+                    case BOOLEAN:
+                        listener.onValue(fBoolean);
+                        break;
+                    case DOUBLE:
+                        if (!fireNumber(listener)) {
+                            listener.onValue(fNumberParser.getDouble());
+                        }
+                        break;
+                    case INTEGER:
+                        if (!fireNumber(listener)) {
+                            listener.onValue(fNumberParser.getInteger());
+                        }
+                        break;
+                    case LONG:
+                        if (!fireNumber(listener)) {
+                            listener.onValue(fNumberParser.getLong());
+                        }
+                        break;
+                    case STRING:
+                        if (sequenceListener != null) {
+                            sequenceListener.onValue(fValue);
+                        } else {
+                            listener.onValue(fValue.toString());
+                        }
+                        break;
+                    default:
+                        listener.onValue((String) null);
+                        break;
+                }
+                endValue(listener, sequenceListener);
+                break;
+        }
+        if (token != JsonToken.PROPERTY
+            && token != JsonToken.BEGIN_OBJECT
+            && token != JsonToken.BEGIN_ARRAY) {
+            // Values already read can not be skipped
+            fSkip = false;
+        }
+    }
+
+    /**
+     * Returns the value of the current {@link JsonToken#BOOLEAN} token.
+     */
+    protected boolean getBoolean() {
+        return fBoolean;
+    }
+
+    /**
+     * Returns the current character or '\0' symbol if the stream does not
+     * contain new characters anymore.
+     * 
+     * @return the current character or the '\0' symbol for the end of the
+     *         stream.
+     */
+    protected abstract char getChar();
+
+    /**
+     * Returns the number of opened objects and arrays.
+     */
+    protected int getDepth() {
+        return fDepth;
+    }
+
+    /**
+     * Returns the parser of the current numeric token.
+     */
+    protected JsonNumberParser getNumber() {
+        return fNumberParser;
+    }
+
+    /**
+     * Returns the interned name of the current {@link JsonToken#PROPERTY}
+     * token.
+     */
+    protected String getPropertyName() {
+        int idx = fDepth - 1;
+        TextBuffer key = fKeys[idx];
+        if (!fSymbolsEnabled) {
+            return key.toString();
+        }
+        if (fPropertyName != null) {
+            return fPropertyName;
+        }
+        int pos = fShapePositions[idx]++;
+        String[] shape = fShapes[idx];
+        if (pos < MAX_SHAPE_SIZE) {
+            if (shape == null) {
+                shape = new String[8];
+                fShapes[idx] = shape;
+            } else if (pos == shape.length) {
+                String[] array = new String[pos * 2];
+                System.arraycopy(shape, 0, array, 0, pos);
+                shape = array;
+                fShapes[idx] = shape;
+            }
+            String name = shape[pos];
+            if (name != null && key.contentEquals(name)) {
+                fPropertyName = name;
+                return name;
+            }
+        }
+        String name = getSymbolTable().intern(key);
+        if (pos < MAX_SHAPE_SIZE) {
+            shape[pos] = name;
+        }
+        fPropertyName = name;
+        return name;
+    }
+
+    /**
+     * Returns the table used to intern property names.
+     * 
+     * @return the table of property names or <code>null</code> if property
+     *         names are not interned
+     */
+    public JsonSymbolTable getSymbolTable() {
+        if (fSymbols == null && fSymbolsEnabled) {
+            fSymbols = new JsonSymbolTable();
+        }
+        return fSymbols;
+    }
+
+    /**
+     * Returns the text of the current token. For property names this method
+     * returns the name of the property; for values it returns the unescaped
+     * value. The returned sequence is valid only until the next token is read.
+     * Property names are valid until the end of their values.
+     */
+    protected CharSequence getText() {
+        return fToken == JsonToken.PROPERTY ? fKeys[fDepth - 1] : fValue;
+    }
+
+    /**
+     * Returns the last token returned by the {@link #nextToken()} method.
+     */
+    protected JsonToken getToken() {
+        return fToken;
+    }
+
+    /**
+     * Goes to the next character in the stream and returns <code>true</code> if
+     * the position was successfully incremented.
+     * 
+     * @return <code>true</code> if the position was successfully incremented
+     */
+    protected abstract boolean incPos();
+
+    /**
+     * Returns <code>true</code> if numbers are reported as raw text to
+     * listeners implementing the {@link IJsonNumberListener} interface.
+     */
+    public boolean isLazyNumbers() {
+        return fLazyNumbers;
+    }
+
+    /**
+     * Returns <code>true</code> if the last call of the {@link #getChar()} or
+     * {@link #incPos()} methods reached the end of characters available so
+     * far while the stream is not finished yet. Parsers receiving data by
+     * chunks override this method. When a string, a non-quoted value or a
+     * skipped value is interrupted in this way, the tokenizer keeps the
+     * characters already read and the scan state, and the
+     * {@link #nextToken()} method continues the token from the same position
+     * when new characters are available.
+     * 
+     * @return <code>true</code> if the stream has no more characters yet
+     */
+    protected boolean isStarved() {
+        return false;
+    }
 
-        public boolean accept(char c) {
-            return get(c) != '\0';
+    /**
+     * Returns <code>true</code> if the reading of the current token was
+     * suspended because of a starved stream (see {@link #isStarved()}). In
+     * this case the next call of the {@link #nextToken()} method continues
+     * this token; the position in the stream should not be changed.
+     */
+    protected boolean isSuspended() {
+        return fPending != PENDING_NONE;
+    }
+
+    /**
+     * Reads the next token.
+     * 
+     * @return the next token or {@link JsonToken#END} if the document is
+     *         finished; this method returns <code>null</code> if the token is
+     *         suspended or it can not be recognized because the stream is
+     *         starved (see {@link #isStarved()})
+     */
+    protected JsonToken nextToken() {
+        fPropertyName = null;
+        fToken = readNextToken();
+        return fToken;
+    }
+
+    /**
+     * Closes the current container and returns the given token.
+     */
+    private JsonToken pop(JsonToken token) {
+        fDepth--;
+        if (fDepth == 0) {
+            fState = STATE_END;
+        } else {
+            fState = fContainers[fDepth - 1]
+                ? STATE_ARRAY_NEXT
+                : STATE_OBJECT_NEXT;
+        }
+        return token;
+    }
+
+    /**
+     * Opens a new container and returns the given token.
+     */
+    private JsonToken push(boolean array, JsonToken token) {
+        if (fDepth == fContainers.length) {
+            int len = fDepth * 2;
+            boolean[] containers = new boolean[len];
+            System.arraycopy(fContainers, 0, containers, 0, fDepth);
+            fContainers = containers;
+            TextBuffer[] keys = new TextBuffer[len];
+            System.arraycopy(fKeys, 0, keys, 0, fDepth);
+            fKeys = keys;
+            String[] names = new String[len];
+            System.arraycopy(fNames, 0, names, 0, fDepth);
+            fNames = names;
+            int[] positions = new int[len];
+            System.arraycopy(fShapePositions, 0, positions, 0, fDepth);
+            fShapePositions = positions;
+            String[][] shapes = new String[len][];
+            System.arraycopy(fShapes, 0, shapes, 0, fDepth);
+            fShapes = shapes;
+        }
+        fContainers[fDepth] = array;
+        if (!array) {
+            if (fKeys[fDepth] == null) {
+                fKeys[fDepth] = new TextBuffer();
+            }
+            fShapePositions[fDepth] = 0;
+        }
+        fDepth++;
+        fState = array ? STATE_ARRAY : STATE_OBJECT;
+        return token;
+    }
+
+    /**
+     * Reads the rest of an escape sequence and appends the unescaped
+     * character to the given buffer. Returns <code>false</code> if the
+     * sequence is interrupted by a starved stream.
+     */
+    private boolean readEscape(TextBuffer buf) {
+        char ch;
+        if (fEscape) {
+            ch = getChar();
+            if (ch <= 0) {
+                if (isStarved()) {
+                    return false;
+                }
+                fEscape = false;
+                return true;
+            }
+            fEscape = false;
+            incPos();
+            if (ch != 'u' && ch != 'U') {
+                buf.append(unescape(ch));
+                return true;
+            }
+            fUnicodeDigits = 0;
+            fUnicodeCode = 0;
+        }
+        while (fUnicodeDigits < 4) {
+            ch = getChar();
+            if (ch <= 0 && isStarved()) {
+                return false;
+            }
+            int v;
+            if (ch >= '0' && ch <= '9') {
+                v = ch - '0';
+            } else if (ch >= 'a' && ch <= 'f') {
+                v = ch - 'a' + 10;
+            } else if (ch >= 'A' && ch <= 'F') {
+                v = ch - 'A' + 10;
+            } else {
+                // A character terminating the sequence is skipped
+                if (ch > 0) {
+                    incPos();
+                }
+                break;
+            }
+            fUnicodeCode |= v << ((3 - fUnicodeDigits) * 4);
+            fUnicodeDigits++;
+            incPos();
         }
-
-        public abstract char get(char c);
+        buf.append((char) fUnicodeCode);
+        fUnicodeDigits = -1;
+        return true;
     }
 
-    private IJsonListener fListener;
-
-    protected CharChecker fQuotChecker = new CharChecker() {
-        @Override
-        public char get(char c) {
-            if (c == '\'' || c == '"') {
-                return c;
-            }
-            return '\0';
+    /**
+     * Reads the name of a property and returns the {@link JsonToken#PROPERTY}
+     * token.
+     * 
+     * @param quot the quotation mark of the name or '\0' for non-quoted
+     *        names
+     */
+    private JsonToken readKey(char quot) {
+        TextBuffer key = fKeys[fDepth - 1];
+        if (!readToken(quot, quot != 0 ? 0 : TOKEN_END, key)) {
+            return suspend(PENDING_KEY, quot);
         }
-    };
-
-    protected CharChecker fSpaceChecker = new CharChecker() {
-        @Override
-        public char get(char c) {
-            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
-                return c;
-            }
-            return '\0';
+        if (quot != 0 && getChar() == quot) {
+            incPos();
         }
-    };
-
-    protected CharChecker fTokenEndChecker = new CharChecker() {
-        @Override
-        public char get(char c) {
-            if (fSpaceChecker.get(c) == c) {
-                return c;
-            }
-            if (c == '{'
-                || c == '}'
-                || c == '['
-                || c == ']'
-                || c == ':'
-                || c == ',') {
-                return c;
-            }
-            return '\0';
+        if (quot == 0 && key.length() == 0) {
+            // Only an empty non-quoted name terminates the object; the ""
+            // name is a valid property name
+            return pop(JsonToken.END_OBJECT);
         }
-    };;
+        return readKeyEnd();
+    }
 
-    protected CharChecker fValueEndChecker = new CharChecker() {
-        @Override
-        public char get(char c) {
-            if (c == '}' || c == ']' || c == ',') {
-                return c;
-            }
-            return '\0';
+    /**
+     * Skips spaces following a property name.
+     */
+    private JsonToken readKeyEnd() {
+        skipSpaces();
+        if (getChar() <= 0 && isStarved()) {
+            return suspend(PENDING_KEY_END, '\0');
         }
-    };
-
-    public AbstractJsonParser() {
+        fState = STATE_OBJECT_VALUE;
+        return JsonToken.PROPERTY;
     }
 
-    protected void doParse(IJsonListener listener) {
-        fListener = listener;
-        int ch = getChar();
-        while (ch != '{' && ch != '[') {
-            if (!incPos()) {
-                break;
+    /**
+     * Reads the next token using the current state of the tokenizer.
+     */
+    private JsonToken readNextToken() {
+        if (fPending == PENDING_SKIP_CONTENT) {
+            fPending = PENDING_NONE;
+            if (!skipContent()) {
+                return suspend(PENDING_SKIP_CONTENT, '\0');
             }
-            ch = getChar();
+        } else if (fPending != PENDING_NONE) {
+            return resume();
         }
-        if (skipArray() || skipObject()) {
-            // OK
+        while (true) {
+            char ch;
+            switch (fState) {
+                case STATE_START:
+                    ch = getChar();
+                    while (ch != '{' && ch != '[') {
+                        if (!incPos()) {
+                            break;
+                        }
+                        ch = getChar();
+                    }
+                    if (ch != '{' && ch != '[') {
+                        fState = STATE_END;
+                        return JsonToken.END;
+                    }
+                    return readValue();
+                case STATE_ARRAY:
+                    if (fSkip) {
+                        fSkip = false;
+                        startSkip();
+                        if (!skipContent()) {
+                            return suspend(PENDING_SKIP_CONTENT, '\0');
+                        }
+                    }
+                    ch = getChar();
+                    // A mismatched closing bracket closes the array as well;
+                    // it can not be read as a value without moving forward
+                    if (ch <= 0 || ch == ']' || ch == '}') {
+                        if (ch > 0) {
+                            incPos();
+                        }
+                        return pop(JsonToken.END_ARRAY);
+                    }
+                    return readValue();
+                case STATE_ARRAY_NEXT:
+                    skipSeparator();
+                    fState = STATE_ARRAY;
+                    break;
+                case STATE_OBJECT:
+                    if (fSkip) {
+                        fSkip = false;
+                        startSkip();
+                        if (!skipContent()) {
+                            return suspend(PENDING_SKIP_CONTENT, '\0');
+                        }
+                    }
+                    skipSpaces();
+                    ch = getChar();
+                    if (ch <= 0 || ch == '}' || ch == ']') {
+                        if (ch > 0) {
+                            incPos();
+                        }
+                        return pop(JsonToken.END_OBJECT);
+                    }
+                    if (is(ch, QUOT)) {
+                        incPos();
+                    } else {
+                        ch = '\0';
+                    }
+                    fKeys[fDepth - 1].reset();
+                    return readKey(ch);
+                case STATE_OBJECT_VALUE:
+                    if (fSkip) {
+                        fSkip = false;
+                        if (getChar() == ':') {
+                            incPos();
+                            return skipRawValue();
+                        }
+                        return skipped();
+                    }
+                    if (getChar() == ':') {
+                        incPos();
+                        return readValue();
+                    }
+                    fState = STATE_OBJECT_NEXT;
+                    return JsonToken.NULL;
+                case STATE_OBJECT_NEXT:
+                    skipSeparator();
+                    fState = STATE_OBJECT;
+                    break;
+                default:
+                    return JsonToken.END;
+            }
         }
-        fListener = null;
     }
 
     /**
-     * Returns the current character or '\0' symbol if the stream does not
-     * contain new characters anymore.
+     * Reads characters of a token until a character terminating the token or
+     * an escape symbol ('\\') is found. This method puts characters in the
+     * given buffer and moves the current position to the first character
+     * which is not read. Subclasses having a direct access to the parsed text
+     * can override this method to scan characters faster or to put a view on
+     * the text in the buffer instead of copying characters.
      * 
-     * @return the current character or the '\0' symbol for the end of the
-     *         stream.
+     * @param quot the quotation mark terminating the token or '\0' for
+     *        non-quoted tokens
+     * @param endType classes of characters terminating non-quoted tokens
+     * @param buf the buffer for token characters
      */
-    protected abstract char getChar();
+    protected void readText(char quot, byte endType, TextBuffer buf) {
+        char ch;
+        while ((ch = getChar()) > 0
+            && ch != '\\'
+            && ch != quot
+            && !is(ch, endType)) {
+            buf.append(ch);
+            incPos();
+        }
+    }
 
     /**
-     * Goes to the next character in the stream and returns <code>true</code> if
-     * the position was successfully incremented.
+     * Reads a token and appends its unescaped value to the given buffer.
      * 
-     * @return <code>true</code> if the position was successfully incremented
+     * @param quot the quotation mark terminating the token or '\0' for
+     *        non-quoted tokens
+     * @param endType classes of characters terminating non-quoted tokens
+     * @param buf the buffer for the unescaped token value
+     * @return <code>false</code> if the token is interrupted by a starved
+     *         stream
      */
-    protected abstract boolean incPos();
+    private boolean readToken(char quot, byte endType, TextBuffer buf) {
+        while (true) {
+            if ((fEscape || fUnicodeDigits >= 0) && !readEscape(buf)) {
+                return false;
+            }
+            readText(quot, endType, buf);
+            if (getChar() != '\\' || !incPos()) {
+                break;
+            }
+            fEscape = true;
+        }
+        return !isStarved();
+    }
 
-    private boolean skipArray() {
+    /**
+     * Reads a value starting from the current position.
+     */
+    private JsonToken readValue() {
         skipSpaces();
         char ch = getChar();
-        if (ch <= 0) {
-            return false;
+        if (ch == '{') {
+            incPos();
+            return push(false, JsonToken.BEGIN_OBJECT);
         }
-        if (ch != '[') {
-            return false;
+        if (ch == '[') {
+            incPos();
+            return push(true, JsonToken.BEGIN_ARRAY);
         }
-        incPos();
-        fListener.beginArray();
-        while ((ch = getChar()) > 0) {
-            if (getChar() == ']') {
+        if (ch <= 0 && isStarved()) {
+            // The type of the value is not known yet
+            return null;
+        }
+        if (is(ch, QUOT)) {
+            incPos();
+        } else {
+            ch = '\0';
+        }
+        fValue.reset();
+        return readValueText(ch);
+    }
+
+    /**
+     * Reads the text of a value and returns the corresponding token.
+     * 
+     * @param quot the quotation mark of the value or '\0' for non-quoted
+     *        values
+     */
+    private JsonToken readValueText(char quot) {
+        TextBuffer value = fValue;
+        if (!readToken(quot, quot != 0 ? 0 : VALUE_END, value)) {
+            return suspend(PENDING_VALUE, quot);
+        }
+        JsonToken token;
+        if (quot != 0) {
+            if (getChar() == quot) {
                 incPos();
-                break;
             }
-            fListener.beginArrayElement();
-            skipValue();
-            fListener.endArrayElement();
-            skipSpaces();
-            if (getChar() == ',') {
-                incPos();
-                skipSpaces();
+            token = JsonToken.STRING;
+        } else {
+            value.trim();
+            if (value.equalsIgnoreCase("null")) {
+                token = JsonToken.NULL;
+            } else if (value.equalsIgnoreCase("true")) {
+                fBoolean = true;
+                token = JsonToken.BOOLEAN;
+            } else if (value.equalsIgnoreCase("false")) {
+                fBoolean = false;
+                token = JsonToken.BOOLEAN;
+            } else if (!fNumberTypes) {
+                token = JsonToken.DOUBLE;
+            } else {
+                switch (fNumberParser.parse(value)) {
+                    case INTEGER:
+                        token = JsonToken.INTEGER;
+                        break;
+                    case LONG:
+                        token = JsonToken.LONG;
+                        break;
+                    case DOUBLE:
+                        token = JsonToken.DOUBLE;
+                        break;
+                    default:
+                        token = JsonToken.STRING;
+                        break;
+                }
             }
         }
-        fListener.endArray();
-        return true;
+        if (fDepth == 0) {
+            fState = STATE_END;
+        } else {
+            fState = fContainers[fDepth - 1]
+                ? STATE_ARRAY_NEXT
+                : STATE_OBJECT_NEXT;
+        }
+        return token;
     }
 
-    private boolean skipObject() {
-        skipSpaces();
-        char ch = getChar();
-        if (ch != '{') {
-            return false;
+    /**
+     * Resets the internal state of this parser. This method should be called
+     * by subclasses before reading tokens of a new document.
+     */
+    protected void reset() {
+        for (int i = 0; i < fDepth; i++) {
+            fNames[i] = null;
         }
-        incPos();
-        fListener.beginObject();
-        while (true) {
-            skipSpaces();
-            ch = getChar();
-            if (ch == '}') {
-                incPos();
-                break;
-            }
-            if (ch <= 0) {
-                break;
+        // Buffers can be views on the previous text; they should not keep it
+        for (TextBuffer key : fKeys) {
+            if (key != null) {
+                key.reset();
             }
+        }
+        fValue.reset();
+        fPropertyName = null;
+        fDepth = 0;
+        fSkip = false;
+        fState = STATE_START;
+        fToken = null;
+        fPending = PENDING_NONE;
+        fEscape = false;
+        fUnicodeDigits = -1;
+    }
 
-            skipSpaces();
-            String property = skipQuot();
-            if (property == null) {
-                property = skipToken(fTokenEndChecker);
+    /**
+     * Restores the state of the tokenizer saved by the last call of the
+     * {@link #saveState()} method. Subclasses should restore their own
+     * position in the stream as well.
+     */
+    protected void restoreState() {
+        fDepth = fSavedDepth;
+        fSkip = fSavedSkip;
+        fState = fSavedState;
+        fToken = fSavedToken;
+    }
+
+    /**
+     * Continues the suspended operation.
+     */
+    private JsonToken resume() {
+        int pending = fPending;
+        fPending = PENDING_NONE;
+        switch (pending) {
+            case PENDING_KEY:
+                return readKey(fPendingQuot);
+            case PENDING_KEY_END:
+                return readKeyEnd();
+            case PENDING_SKIP_CONTAINER:
+                return skipRawContainer();
+            case PENDING_SKIP_STRING:
+                return skipRawString();
+            case PENDING_SKIP_TOKEN:
+                return skipRawToken();
+            default:
+                return readValueText(fPendingQuot);
+        }
+    }
+
+    /**
+     * Saves the state of the tokenizer (the stack of opened containers and
+     * the expected token). Together with the {@link #restoreState()} method it
+     * allows to cancel reading of a token when the stream does not contain
+     * enough characters yet. Only one state can be saved.
+     */
+    protected void saveState() {
+        fSavedDepth = fDepth;
+        fSavedSkip = fSkip;
+        fSavedState = fState;
+        fSavedToken = fToken;
+    }
+
+    /**
+     * Activates or deactivates the "lazy numbers" mode. In this mode numbers
+     * are not converted by the parser; listeners implementing the
+     * {@link IJsonNumberListener} interface receive the original text of
+     * numbers, so numbers which are never used are never converted. Other
+     * listeners receive converted values as usual.
+     * 
+     * @param lazy <code>true</code> to activate the mode
+     */
+    public void setLazyNumbers(boolean lazy) {
+        fLazyNumbers = lazy;
+    }
+
+    /**
+     * Activates or deactivates recognition of number types. If it is
+     * deactivated then all non-quoted values which are not literals are
+     * returned as {@link JsonToken#DOUBLE} tokens without parsing, even if
+     * they are not numbers. It is used by readers recognizing values later,
+     * like the {@link JsonTape}.
+     * 
+     * @param types <code>false</code> to return raw value tokens
+     */
+    void setNumberTypes(boolean types) {
+        fNumberTypes = types;
+    }
+
+    /**
+     * Sets a new table used to intern property names. Parsers can share the
+     * same table if they are used in the same thread.
+     * 
+     * @param symbols the table of property names; if it is <code>null</code>
+     *        then property names are not interned
+     */
+    public void setSymbolTable(JsonSymbolTable symbols) {
+        fSymbols = symbols;
+        fSymbolsEnabled = symbols != null;
+    }
+
+    /**
+     * Skips the content of the current object or array up to its closing
+     * bracket without reading tokens. Only brackets and quoted strings are
+     * recognized; the closing bracket is not consumed. The state of the scan
+     * is kept in fields, so it can be continued after a starved stream.
+     * 
+     * @return <code>false</code> if the content is interrupted by a starved
+     *         stream
+     */
+    private boolean skipContent() {
+        char ch;
+        while (true) {
+            if (fSkipQuot != 0) {
+                if (!skipQuoted()) {
+                    return false;
+                }
+                fSkipTokenStart = false;
             }
-            if (property == null || property.length() == 0) {
+            if ((ch = getChar()) <= 0) {
                 break;
             }
-
-            skipSpaces();
-            fListener.beginObjectProperty(property);
-            ch = getChar();
-            if (ch == ':') {
+            if (fSkipEscape) {
+                fSkipEscape = false;
                 incPos();
-                skipValue();
-            } else {
-                fListener.onValue(null);
+                continue;
             }
-            fListener.endObjectProperty(property);
-            skipSpaces();
-
-            ch = getChar();
-            if (ch == ',') {
+            if (fSkipTokenStart && is(ch, QUOT)) {
+                fSkipQuot = ch;
                 incPos();
-                skipSpaces();
+                continue;
+            }
+            switch (ch) {
+                case '{':
+                case '[':
+                    fSkipDepth++;
+                    fSkipTokenStart = true;
+                    break;
+                case '}':
+                case ']':
+                    if (fSkipDepth == 0) {
+                        return true;
+                    }
+                    fSkipDepth--;
+                    fSkipTokenStart = false;
+                    break;
+                case ',':
+                case ':':
+                    fSkipTokenStart = true;
+                    break;
+                case '\\':
+                    fSkipEscape = true;
+                    fSkipTokenStart = false;
+                    break;
+                default:
+                    if (!is(ch, SPACE)) {
+                        fSkipTokenStart = false;
+                    }
+                    break;
             }
+            incPos();
         }
-        fListener.endObject();
-        return true;
+        return !isStarved();
     }
 
-    private String skipQuot() {
-        char ch = getChar();
-        if (ch <= 0) {
-            return null;
+    /**
+     * Skips the rest of the quoted string opened by the {@link #fSkipQuot}
+     * quotation mark, including the closing quotation mark.
+     * 
+     * @return <code>false</code> if the string is interrupted by a starved
+     *         stream
+     */
+    private boolean skipQuoted() {
+        char ch;
+        while ((ch = getChar()) > 0) {
+            incPos();
+            if (fSkipEscape) {
+                fSkipEscape = false;
+            } else if (ch == '\\') {
+                fSkipEscape = true;
+            } else if (ch == fSkipQuot) {
+                fSkipQuot = 0;
+                return true;
+            }
         }
-        final char quot = fQuotChecker.get(ch);
-        if (quot == 0) {
-            return null;
+        if (isStarved()) {
+            return false;
         }
-        incPos();
-        String result = skipToken(new CharChecker() {
-            @Override
-            public char get(char c) {
-                return quot == c ? c : '\0';
-            }
-        });
-        if (getChar() == quot) {
-            incPos();
+        fSkipQuot = 0;
+        return true;
+    }
+
+    /**
+     * Skips the rest of a raw object or array value including its closing
+     * bracket.
+     */
+    private JsonToken skipRawContainer() {
+        if (!skipContent()) {
+            return suspend(PENDING_SKIP_CONTAINER, '\0');
         }
-        return result;
+        incPos();
+        return skipped();
     }
 
-    private boolean skipSpaces() {
-        int i;
-        for (i = 0; fSpaceChecker.accept(getChar()); incPos(), i++) {
+    /**
+     * Skips the rest of a raw quoted value.
+     */
+    private JsonToken skipRawString() {
+        if (!skipQuoted()) {
+            return suspend(PENDING_SKIP_STRING, '\0');
         }
-        return i > 0;
+        return skipped();
     }
 
-    private String skipToken(CharChecker endChecker) {
-        StringBuffer buf = new StringBuffer();
-        boolean escaped = false;
+    /**
+     * Skips the rest of a raw non-quoted value.
+     */
+    private JsonToken skipRawToken() {
         char ch;
-        for (; (ch = getChar()) > 0; incPos()) {
-            if (escaped) {
-                switch (ch) {
-                    case 'n':
-                        buf.append('\n');
-                        break;
-                    case 'r':
-                        buf.append('\r');
-                        break;
-                    case 't':
-                        buf.append('\t');
-                        break;
-                    case 'f':
-                        buf.append('\f');
-                        break;
-                    case 'u':
-                    case 'U':
-                        int code = 0;
-                        for (int i = 0; i < 4; i++) {
-                            if (!incPos()) {
-                                break;
-                            }
-                            ch = getChar();
-                            int v;
-                            if (ch >= '0' && ch <= '9') {
-                                v = ch - '0';
-                            } else if (ch >= 'a' && ch <= 'f') {
-                                v = ch - 'a' + 10;
-                            } else if (ch >= 'A' && ch <= 'F') {
-                                v = ch - 'A' + 10;
-                            } else {
-                                break;
-                            }
-                            code |= v << ((3 - i) * 4);
-                        }
-                        ch = (char) code;
-                        buf.append(ch);
-                        break;
-                    default:
-                        buf.append(ch);
-                        break;
-                }
-                escaped = false;
-                continue;
-            }
-            escaped = ch == '\\';
-            if (escaped) {
-                continue;
-            }
-            if (endChecker.accept(ch)) {
+        while ((ch = getChar()) > 0) {
+            if (fSkipEscape) {
+                fSkipEscape = false;
+            } else if (is(ch, VALUE_END)) {
                 break;
+            } else if (ch == '\\') {
+                fSkipEscape = true;
             }
-            buf.append(ch);
+            incPos();
         }
-        return buf.toString();
+        if (ch <= 0 && isStarved()) {
+            return suspend(PENDING_SKIP_TOKEN, '\0');
+        }
+        return skipped();
     }
 
-    private boolean skipValue() {
-        boolean result = false;
+    /**
+     * Skips a value starting from the current position without reading it
+     * and returns the {@link JsonToken#SKIPPED} token.
+     */
+    private JsonToken skipRawValue() {
         skipSpaces();
-        if (!(result = skipObject())) {
-            if (!(result = skipArray())) {
-                skipSpaces();
-                String value = skipQuot();
-                if (value != null) {
-                    fListener.onValue(value);
-                } else {
-                    value = skipToken(fValueEndChecker);
-                    if (value == null) {
-                        fListener.onValue(null);
-                    } else {
-                        value = value.trim();
-                        String v = value.toLowerCase();
-                        if ("null".equals(v)) {
-                            fListener.onValue(null);
-                        } else if ("true".equals(v)) {
-                            fListener.onValue(true);
-                            result = true;
-                        } else if ("false".equals(v)) {
-                            fListener.onValue(false);
-                            result = true;
-                        } else {
-                            int i = 0;
-                            try {
-                                i = Integer.parseInt(v);
-                                result = true;
-                            } catch (NumberFormatException e) {
-                            }
-                            if (result) {
-                                fListener.onValue(i);
-                            } else {
-                                long l = 0;
-                                try {
-                                    l = Long.parseLong(v);
-                                    result = true;
-                                } catch (NumberFormatException e) {
-                                }
-                                if (result) {
-                                    fListener.onValue(l);
-                                } else {
-                                    double d = 0;
-                                    try {
-                                        d = Double.parseDouble(v);
-                                        result = true;
-                                    } catch (NumberFormatException e) {
-                                    }
-                                    if (result) {
-                                        fListener.onValue(d);
-                                    } else {
-                                        result = true;
-                                        fListener.onValue(value);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        char ch = getChar();
+        if (ch <= 0) {
+            // The type of the value is not known if the stream is starved
+            return skipped();
+        }
+        startSkip();
+        if (is(ch, QUOT)) {
+            incPos();
+            fSkipQuot = ch;
+            return skipRawString();
+        }
+        if (ch == '{' || ch == '[') {
+            incPos();
+            return skipRawContainer();
+        }
+        return skipRawToken();
+    }
+
+    /**
+     * Skips spaces and a comma separating values.
+     */
+    private void skipSeparator() {
+        skipSpaces();
+        if (getChar() == ',') {
+            incPos();
+            skipSpaces();
+        }
+    }
+
+    private boolean skipSpaces() {
+        boolean result = false;
+        while (is(getChar(), SPACE)) {
+            incPos();
+            result = true;
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the {@link JsonToken#SKIPPED} token for a skipped property
+     * value.
+     */
+    private JsonToken skipped() {
+        fState = STATE_OBJECT_NEXT;
+        return JsonToken.SKIPPED;
+    }
+
+    /**
+     * Asks this parser to skip the value which is currently started. This
+     * method is intended to be called by listeners to avoid reading values
+     * they are not interested in. When it is called from the
+     * {@link IJsonListener#beginObjectProperty(String)} method, the value of
+     * the property is skipped and the listener receives only the
+     * {@link IJsonListener#endObjectProperty(String)} call. When it is called
+     * from the {@link IJsonListener#beginObject()} or
+     * {@link IJsonListener#beginArray()} methods, all the content of the
+     * object or array is skipped and the listener is notified only about its
+     * end. Skipped values are not decoded: the parser just counts brackets and
+     * quotes. In other cases this method has no effect.
+     */
+    public void skipValue() {
+        fSkip = true;
+    }
+
+    /**
+     * Initializes the state used to skip raw values.
+     */
+    private void startSkip() {
+        fSkipDepth = 0;
+        fSkipEscape = false;
+        fSkipQuot = 0;
+        fSkipTokenStart = true;
+    }
+
+    /**
+     * Suspends the current operation and returns <code>null</code>.
+     * 
+     * @param pending the suspended operation
+     * @param quot the quotation mark of the suspended token
+     */
+    private JsonToken suspend(int pending, char quot) {
+        fPending = pending;
+        fPendingQuot = quot;
+        return null;
+    }
+
+    /**
+     * Returns the character corresponding to the escape sequence starting with
+     * the given character (except unicode sequences).
+     * 
+     * @param ch the character following the backslash
+     * @return the unescaped character
+     */
+    private char unescape(char ch) {
+        switch (ch) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'f':
+                return '\f';
+            default:
+                return ch;
+        }
+    }
+}
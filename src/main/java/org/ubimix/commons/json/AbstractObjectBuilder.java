@@ -3,13 +3,31 @@
  */
 package org.ubimix.commons.json;
 
-import java.util.Stack;
-
 /**
  * @author kotelnikov
  */
-public abstract class AbstractObjectBuilder implements IJsonListener {
-    private Stack<Object> fStack = new Stack<Object>();
+public abstract class AbstractObjectBuilder
+    implements
+    IJsonNumberListener {
+
+    /**
+     * The number of properties in the last object closed on each level of
+     * nesting. Objects on the same level usually have the same size, so this
+     * value is used to pre-size new objects.
+     */
+    private int[] fLastSizes = new int[16];
+
+    /**
+     * The number of properties in opened objects
+     */
+    private int[] fSizes = new int[16];
+
+    /**
+     * Opened objects and arrays
+     */
+    private Object[] fStack = new Object[16];
+
+    private int fStackSize;
 
     private Object fTop;
 
@@ -30,7 +48,7 @@ public abstract class AbstractObjectBuilder implements IJsonListener {
         if (fTop == null) {
             fTop = array;
         }
-        fStack.push(array);
+        push(array);
     }
 
     public void beginArrayElement() {
@@ -38,33 +56,39 @@ public abstract class AbstractObjectBuilder implements IJsonListener {
     }
 
     public void beginObject() {
-        Object object = newObject();
+        int size = fStackSize < fLastSizes.length
+            ? fLastSizes[fStackSize]
+            : 0;
+        // Without a known size the default capacity is used
+        Object object = size > 0 ? newObject(size) : newObject();
         if (fTop == null) {
             fTop = object;
         }
-        fStack.push(object);
+        push(object);
     }
 
     public void beginObjectProperty(String property) {
     }
 
     public void endArray() {
-        fValue = fStack.pop();
+        fValue = pop();
     }
 
     public void endArrayElement() {
-        Object array = fStack.peek();
+        Object array = fStack[fStackSize - 1];
         addToArray(array, fValue);
         fValue = null;
     }
 
     public void endObject() {
-        fValue = fStack.pop();
+        fLastSizes[fStackSize - 1] = fSizes[fStackSize - 1];
+        fValue = pop();
     }
 
     public void endObjectProperty(String property) {
-        Object obj = fStack.peek();
+        Object obj = fStack[fStackSize - 1];
         addObjectValue(obj, property, fValue);
+        fSizes[fStackSize - 1]++;
         fValue = null;
     }
 
@@ -95,6 +119,21 @@ public abstract class AbstractObjectBuilder implements IJsonListener {
 
     protected abstract Object newObject();
 
+    /**
+     * Creates a new object which is expected to contain the given number of
+     * properties. It is called only when the size is known (it is positive).
+     * By default this method just calls the {@link #newObject()} method.
+     * 
+     * @param size the expected number of properties
+     */
+    protected Object newObject(int size) {
+        return newObject();
+    }
+
+    public void onNumber(CharSequence value) {
+        fValue = new JsonNumber(value.toString());
+    }
+
     public void onValue(boolean value) {
         fValue = value;
     }
@@ -115,8 +154,41 @@ public abstract class AbstractObjectBuilder implements IJsonListener {
         fValue = value;
     }
 
+    /**
+     * Removes and returns the innermost opened object or array.
+     */
+    private Object pop() {
+        Object value = fStack[--fStackSize];
+        fStack[fStackSize] = null;
+        return value;
+    }
+
+    private void push(Object value) {
+        if (fStackSize == fStack.length) {
+            int len = fStackSize * 2;
+            Object[] stack = new Object[len];
+            System.arraycopy(fStack, 0, stack, 0, fStackSize);
+            fStack = stack;
+            int[] sizes = new int[len];
+            System.arraycopy(fSizes, 0, sizes, 0, fStackSize);
+            fSizes = sizes;
+            int[] lastSizes = new int[len];
+            System.arraycopy(fLastSizes, 0, lastSizes, 0, fStackSize);
+            fLastSizes = lastSizes;
+        }
+        fSizes[fStackSize] = 0;
+        fStack[fStackSize++] = value;
+    }
+
+    /**
+     * Resets the state of this builder. After this call the builder can be
+     * used to build a new object.
+     */
     public void reset() {
-        fStack.clear();
+        for (int i = 0; i < fStackSize; i++) {
+            fStack[i] = null;
+        }
+        fStackSize = 0;
         fTop = null;
         fValue = null;
     }
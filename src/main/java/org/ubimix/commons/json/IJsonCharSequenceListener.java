@@ -0,0 +1,41 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * Listeners implementing this interface receive property names and string
+ * values as reusable character sequences instead of strings. Parsers call the
+ * methods defined here instead of their {@link String}-based counterparts
+ * from the {@link IJsonListener} interface. The given sequences can be views
+ * on the parsed text or on internal parser buffers. They must not be stored:
+ * a value is valid only during the method call and a property name is valid
+ * until the corresponding {@link #endObjectProperty(CharSequence)} call.
+ * Listeners which need to keep these values should transform them in strings
+ * using the {@link CharSequence#toString()} method. Null values are still
+ * reported using the {@link #onValue(String)} method.
+ * 
+ * @author kotelnikov
+ */
+public interface IJsonCharSequenceListener extends IJsonListener {
+
+    void beginObjectProperty(CharSequence property);
+
+    void endObjectProperty(CharSequence property);
+
+    void onValue(CharSequence value);
+
+}
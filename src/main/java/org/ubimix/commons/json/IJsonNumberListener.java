@@ -0,0 +1,35 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * Listeners implementing this interface can receive numbers as raw text
+ * instead of converted values. Parsers call the {@link #onNumber(CharSequence)}
+ * method only when the "lazy numbers" mode is activated (see
+ * {@link AbstractJsonParser#setLazyNumbers(boolean)}); otherwise numbers are
+ * reported using the <code>onValue</code> methods. Visitors call this method
+ * for {@link JsonNumber} values, so the original text of numbers can be
+ * re-serialized without conversions. The given sequence is valid only during
+ * the method call.
+ * 
+ * @author kotelnikov
+ */
+public interface IJsonNumberListener extends IJsonListener {
+
+    void onNumber(CharSequence value);
+
+}
@@ -0,0 +1,39 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * Accessors implementing this interface can create objects with a capacity
+ * suitable for the expected number of properties. Object builders use this
+ * method when they already know the size of similar objects (see
+ * {@link AbstractObjectBuilder#newObject(int)}); other accessors receive
+ * only {@link #newObject()} calls.
+ * 
+ * @author kotelnikov
+ */
+public interface IJsonSizedAccessor extends IJsonAccessor {
+
+    /**
+     * Creates and returns a new JSON object which is expected to contain the
+     * given number of properties.
+     * 
+     * @param size the expected number of properties
+     * @return a newly created JSON object.
+     */
+    Object newObject(int size);
+
+}
@@ -43,6 +43,11 @@ public class JavaObjectBuilder extends AbstractObjectBuilder {
         return new LinkedHashMap<String, Object>();
     }
 
+    @Override
+    protected Object newObject(int size) {
+        return new LinkedHashMap<String, Object>(size * 4 / 3 + 1);
+    }
+
     @Override
     protected String toString(Object top) {
         return top != null ? top.toString() : null;
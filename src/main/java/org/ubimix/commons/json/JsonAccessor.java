@@ -13,10 +13,39 @@ import java.util.Set;
 /**
  * @author kotelnikov
  */
-public class JsonAccessor extends AbstractJsonAccessor {
+public class JsonAccessor extends AbstractJsonAccessor
+    implements
+    IJsonSizedAccessor {
+
+    /**
+     * A parser and a builder re-used by the {@link JsonAccessor#parse(String)}
+     * method. Like before, the builder creates values using the default
+     * accessor and not the accessor owning the pool.
+     */
+    private static class ParserContext {
+
+        private final JsonObjectBuilder fBuilder = new JsonObjectBuilder();
+
+        private final JsonParser fParser = new JsonParser();
+
+        public Object parse(String str) {
+            try {
+                fParser.parse(str, fBuilder);
+                return fBuilder.getTop();
+            } finally {
+                fBuilder.reset();
+                fParser.reset("");
+            }
+        }
+    }
 
     private static JsonAccessor fInstance;
 
+    /**
+     * The maximal number of idle parsers kept by each accessor
+     */
+    private static final int POOL_SIZE = 8;
+
     public static JsonAccessor getInstance() {
         if (fInstance == null) {
             fInstance = new JsonAccessor();
@@ -24,12 +53,31 @@ public class JsonAccessor extends AbstractJsonAccessor {
         return fInstance;
     }
 
+    /**
+     * Idle parsers
+     */
+    private final ParserContext[] fPool = new ParserContext[POOL_SIZE];
+
+    private int fPoolSize;
+
     /**
      * 
      */
     public JsonAccessor() {
     }
 
+    /**
+     * Returns an idle parser from the pool or creates a new one.
+     */
+    private synchronized ParserContext acquireParser() {
+        if (fPoolSize == 0) {
+            return new ParserContext();
+        }
+        ParserContext context = fPool[--fPoolSize];
+        fPool[fPoolSize] = null;
+        return context;
+    }
+
     /**
      * @see org.ubimix.commons.json.IJsonAccessor#addArrayValue(java.lang.Object,
      *      int, java.lang.Object)
@@ -75,7 +123,8 @@ public class JsonAccessor extends AbstractJsonAccessor {
             || (o instanceof Boolean)
             || (o instanceof Integer)
             || (o instanceof Long)
-            || (o instanceof Double)) {
+            || (o instanceof Double)
+            || (o instanceof JsonNumber)) {
             result = o;
         } else if ((o instanceof Byte) || (o instanceof Short)) {
             result = Integer.valueOf(o.toString());
@@ -121,6 +170,8 @@ public class JsonAccessor extends AbstractJsonAccessor {
             result = JsonType.LONG;
         } else if (o instanceof Double) {
             result = JsonType.DOUBLE;
+        } else if (o instanceof JsonNumber) {
+            result = ((JsonNumber) o).getType();
         }
         return result;
     }
@@ -157,20 +208,42 @@ public class JsonAccessor extends AbstractJsonAccessor {
         return new LinkedHashMap<Object, Object>();
     }
 
+    /**
+     * Subclasses overriding the {@link #newObject()} method should override
+     * this method as well.
+     * 
+     * @see org.ubimix.commons.json.IJsonSizedAccessor#newObject(int)
+     */
+    public Object newObject(int size) {
+        if (size <= 0) {
+            return newObject();
+        }
+        return new LinkedHashMap<Object, Object>(size * 4 / 3 + 1);
+    }
+
     /**
      * @see org.ubimix.commons.json.IJsonAccessor#parse(java.lang.String)
      */
     public Object parse(String str) {
+        ParserContext context = acquireParser();
         try {
-            JsonParser parser = new JsonParser();
-            JsonObjectBuilder util = new JsonObjectBuilder();
-            parser.parse(str, util);
-            Object obj = util.getTop();
+            Object obj = context.parse(str);
             return obj;
         } catch (Throwable e) {
             throw handleError(
                 "Can not parse the given string. String: " + str,
                 e);
+        } finally {
+            releaseParser(context);
+        }
+    }
+
+    /**
+     * Returns the given parser to the pool of idle parsers.
+     */
+    private synchronized void releaseParser(ParserContext context) {
+        if (fPoolSize < fPool.length) {
+            fPool[fPoolSize++] = context;
         }
     }
 
@@ -198,6 +271,11 @@ public class JsonAccessor extends AbstractJsonAccessor {
     public String serialize(Object object) {
         final StringBuilder buf = new StringBuilder();
         JsonSerializer serializer = new JsonSerializer(2) {
+            @Override
+            protected void print(CharSequence str, int start, int end) {
+                buf.append(str, start, end);
+            }
+
             @Override
             protected void print(String string) {
                 buf.append(string);
@@ -101,8 +101,8 @@ public class JsonArray extends JsonValue {
      *         specified property and position.
      */
     public double getDouble(int pos, double defaultValue) {
-        Double value = getValue(pos, JsonType.DOUBLE);
-        return value != null ? value : defaultValue;
+        Object value = getValue(pos, JsonType.DOUBLE);
+        return value != null ? fAccessor.toDouble(value) : defaultValue;
     }
 
     /**
@@ -117,8 +117,8 @@ public class JsonArray extends JsonValue {
      *         specified property and position.
      */
     public int getInteger(int pos, int defaultValue) {
-        Integer value = getValue(pos, JsonType.INTEGER);
-        return value != null ? value : defaultValue;
+        Object value = getValue(pos, JsonType.INTEGER);
+        return value != null ? fAccessor.toInteger(value) : defaultValue;
     }
 
     /**
@@ -146,8 +146,8 @@ public class JsonArray extends JsonValue {
      *         specified property and position.
      */
     public long getLong(int pos, long defaultValue) {
-        Long value = getValue(pos, JsonType.LONG);
-        return value != null ? value : defaultValue;
+        Object value = getValue(pos, JsonType.LONG);
+        return value != null ? fAccessor.toLong(value) : defaultValue;
     }
 
     /**
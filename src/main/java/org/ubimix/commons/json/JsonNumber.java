@@ -0,0 +1,134 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+
+/**
+ * A number keeping its original JSON text. The text is converted only when
+ * the value of the number is requested, so numbers which are just copied from
+ * one document to another are never parsed and do not lose their precision
+ * or format. These objects are created by builders when the parser works in
+ * the "lazy numbers" mode (see
+ * {@link AbstractJsonParser#setLazyNumbers(boolean)}).
+ * <p>
+ * Two numbers are equal if they have the same text, so <code>1.0</code> and
+ * <code>1</code> are different numbers. A number is never equal to
+ * {@link Double}, {@link Integer} or {@link Long} objects, so trees built
+ * in the lazy mode are not equal to trees built with eagerly converted
+ * numbers. Values should be compared using {@link #doubleValue()} or
+ * {@link #longValue()} in this case.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public final class JsonNumber extends Number {
+
+    private static final long serialVersionUID = 3506389543146355410L;
+
+    private boolean fConverted;
+
+    private double fDouble;
+
+    private long fLong;
+
+    private final String fText;
+
+    private JsonType fType;
+
+    /**
+     * @param text the text of the number
+     */
+    public JsonNumber(String text) {
+        fText = text;
+    }
+
+    private void convert() {
+        if (!fConverted) {
+            JsonNumberParser parser = new JsonNumberParser();
+            fType = parser.parse(fText);
+            fDouble = parser.getDouble();
+            fLong = parser.getLong();
+            fConverted = true;
+        }
+    }
+
+    @Override
+    public double doubleValue() {
+        convert();
+        return fDouble;
+    }
+
+    /**
+     * Returns <code>true</code> if the given object is a {@link JsonNumber}
+     * with the same text.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof JsonNumber)) {
+            return false;
+        }
+        JsonNumber o = (JsonNumber) obj;
+        return fText.equals(o.fText);
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    /**
+     * Returns the type of this number: {@link JsonType#INTEGER},
+     * {@link JsonType#LONG} or {@link JsonType#DOUBLE}. If the text is not a
+     * number then this method returns {@link JsonType#NONE}. The type is
+     * recognized by the syntax of the text; the value is not converted.
+     */
+    public JsonType getType() {
+        if (fType == null) {
+            fType = new JsonNumberParser().parse(fText);
+        }
+        return fType;
+    }
+
+    @Override
+    public int hashCode() {
+        return fText.hashCode();
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public long longValue() {
+        convert();
+        return fLong;
+    }
+
+    /**
+     * Returns the original text of this number.
+     */
+    @Override
+    public String toString() {
+        return fText;
+    }
+
+}
@@ -0,0 +1,340 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+
+/**
+ * This class recognizes numeric tokens in a single pass without throwing
+ * exceptions. Integers fitting in 32 bits are reported as
+ * {@link JsonType#INTEGER}, other integers fitting in 64 bits as
+ * {@link JsonType#LONG} and all other numbers as {@link JsonType#DOUBLE}.
+ * Decimal numbers with mantissas up to 2^53 and exponents in the [-22, 22]
+ * range are converted exactly by one floating point operation (the "fast
+ * path" of the Clinger's algorithm); all other numbers are converted by
+ * {@link Double#parseDouble(String)} only when their value is requested, so
+ * the parsed sequence should not be changed before that.
+ * <p>
+ * The accepted grammar is the same as the grammar of the parser before this
+ * class was introduced, which tried the standard Java conversion methods on
+ * the lower-cased token. Besides plain decimal numbers it accepts the
+ * <code>f</code> and <code>d</code> suffixes of Java floating point literals
+ * (<code>1f</code>, <code>2.5D</code>) and hexadecimal floating point
+ * literals (<code>0x1.8p1</code>); these are always reported as
+ * {@link JsonType#DOUBLE}. The <code>NaN</code> and <code>Infinity</code>
+ * tokens are not numbers, as before: the lower-cased forms were never
+ * accepted by {@link Double#parseDouble(String)}.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public final class JsonNumberParser {
+
+    /**
+     * The biggest integer which can be exactly represented by a double value
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Powers of ten exactly represented by double values
+     */
+    private static final double[] POWERS = {
+        1e0,
+        1e1,
+        1e2,
+        1e3,
+        1e4,
+        1e5,
+        1e6,
+        1e7,
+        1e8,
+        1e9,
+        1e10,
+        1e11,
+        1e12,
+        1e13,
+        1e14,
+        1e15,
+        1e16,
+        1e17,
+        1e18,
+        1e19,
+        1e20,
+        1e21,
+        1e22 };
+
+    private double fDouble;
+
+    private int fEnd;
+
+    private long fLong;
+
+    /**
+     * The sequence of the last parsed number if its value is not converted
+     * yet
+     */
+    private CharSequence fSource;
+
+    private int fStart;
+
+    private JsonType fType = JsonType.NONE;
+
+    public JsonNumberParser() {
+    }
+
+    /**
+     * Returns <code>true</code> if the given character is a suffix of Java
+     * floating point literals.
+     */
+    private static boolean isFloatSuffix(char ch) {
+        return ch == 'f' || ch == 'F' || ch == 'd' || ch == 'D';
+    }
+
+    /**
+     * Returns <code>true</code> if the specified region contains the part of
+     * a hexadecimal floating point literal following the "0x" prefix: hex
+     * digits with an optional point, a binary exponent and an optional
+     * suffix.
+     */
+    private static boolean isHexFloat(CharSequence str, int pos, int end) {
+        int digits = 0;
+        boolean point = false;
+        for (; pos < end; pos++) {
+            char ch = str.charAt(pos);
+            if ((ch >= '0' && ch <= '9')
+                || (ch >= 'a' && ch <= 'f')
+                || (ch >= 'A' && ch <= 'F')) {
+                digits++;
+            } else if (ch == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || pos == end || (str.charAt(pos) | 0x20) != 'p') {
+            return false;
+        }
+        pos++;
+        if (pos < end && (str.charAt(pos) == '-' || str.charAt(pos) == '+')) {
+            pos++;
+        }
+        int start = pos;
+        while (pos < end && str.charAt(pos) >= '0' && str.charAt(pos) <= '9') {
+            pos++;
+        }
+        if (pos == start) {
+            return false;
+        }
+        return pos == end || (pos == end - 1 && isFloatSuffix(str.charAt(pos)));
+    }
+
+    /**
+     * @return the value of the last parsed number as a double
+     */
+    public double getDouble() {
+        if (fSource != null) {
+            String token = fSource.subSequence(fStart, fEnd).toString();
+            fSource = null;
+            fDouble = Double.parseDouble(token);
+            fLong = (long) fDouble;
+        }
+        return fDouble;
+    }
+
+    /**
+     * @return the value of the last parsed integer number
+     */
+    public int getInteger() {
+        return (int) getLong();
+    }
+
+    /**
+     * @return the value of the last parsed long number
+     */
+    public long getLong() {
+        if (fSource != null) {
+            getDouble();
+        }
+        return fLong;
+    }
+
+    /**
+     * @return the type of the last parsed number
+     */
+    public JsonType getType() {
+        return fType;
+    }
+
+    /**
+     * Parses the given token.
+     * 
+     * @param str the token to parse
+     * @return the type of the number ({@link JsonType#INTEGER},
+     *         {@link JsonType#LONG} or {@link JsonType#DOUBLE}) or
+     *         {@link JsonType#NONE} if the token is not a number
+     */
+    public JsonType parse(CharSequence str) {
+        return parse(str, 0, str.length());
+    }
+
+    /**
+     * Parses the specified region of the given sequence.
+     * 
+     * @param str the sequence containing the token
+     * @param start the position of the first character of the token
+     * @param end the position following the last character of the token
+     * @return the type of the number ({@link JsonType#INTEGER},
+     *         {@link JsonType#LONG} or {@link JsonType#DOUBLE}) or
+     *         {@link JsonType#NONE} if the token is not a number
+     */
+    public JsonType parse(CharSequence str, int start, int end) {
+        fType = JsonType.NONE;
+        fSource = null;
+        fLong = 0;
+        fDouble = 0;
+        int pos = start;
+        boolean negative = false;
+        if (pos < end) {
+            char ch = str.charAt(pos);
+            if (ch == '-' || ch == '+') {
+                negative = ch == '-';
+                pos++;
+            }
+        }
+        if (end - pos > 2
+            && str.charAt(pos) == '0'
+            && (str.charAt(pos + 1) | 0x20) == 'x') {
+            if (isHexFloat(str, pos + 2, end)) {
+                fType = JsonType.DOUBLE;
+                fSource = str;
+                fStart = start;
+                fEnd = end;
+            }
+            return fType;
+        }
+        // The suffix of Java floating point literals
+        int stop = end;
+        boolean suffix = stop - pos > 1 && isFloatSuffix(str.charAt(stop - 1));
+        if (suffix) {
+            stop--;
+        }
+        // Digits are accumulated as a negative value to handle
+        // Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long min = limit / 10;
+        long value = 0;
+        boolean overflow = false;
+        boolean decimal = false;
+        int digits = 0;
+        int exponent = 0;
+        char ch = 0;
+        for (; pos < stop; pos++) {
+            ch = str.charAt(pos);
+            if (ch >= '0' && ch <= '9') {
+                digits++;
+                if (overflow) {
+                    if (!decimal) {
+                        exponent++;
+                    }
+                    continue;
+                }
+                int d = ch - '0';
+                if (value < min || value * 10 < limit + d) {
+                    overflow = true;
+                    if (!decimal) {
+                        exponent++;
+                    }
+                    continue;
+                }
+                value = value * 10 - d;
+                if (decimal) {
+                    exponent--;
+                }
+            } else if (ch == '.' && !decimal) {
+                decimal = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return fType;
+        }
+        if (pos < stop) {
+            if (ch != 'e' && ch != 'E') {
+                return fType;
+            }
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < stop) {
+                ch = str.charAt(pos);
+                if (ch == '-' || ch == '+') {
+                    negativeExponent = ch == '-';
+                    pos++;
+                }
+            }
+            if (pos == stop) {
+                return fType;
+            }
+            int e = 0;
+            for (; pos < stop; pos++) {
+                ch = str.charAt(pos);
+                if (ch < '0' || ch > '9') {
+                    return fType;
+                }
+                if (e < 100000) {
+                    e = e * 10 + (ch - '0');
+                }
+            }
+            exponent += negativeExponent ? -e : e;
+            decimal = true;
+        }
+
+        if (suffix) {
+            decimal = true;
+        }
+        if (!decimal && !overflow) {
+            fLong = negative ? value : -value;
+            fDouble = fLong;
+            fType = fLong >= Integer.MIN_VALUE && fLong <= Integer.MAX_VALUE
+                ? JsonType.INTEGER
+                : JsonType.LONG;
+            return fType;
+        }
+
+        fType = JsonType.DOUBLE;
+        if (!overflow
+            && value >= -MAX_EXACT_MANTISSA
+            && exponent > -POWERS.length
+            && exponent < POWERS.length) {
+            double d = -value;
+            if (exponent > 0) {
+                d *= POWERS[exponent];
+            } else if (exponent < 0) {
+                d /= POWERS[-exponent];
+            }
+            fDouble = negative ? -d : d;
+            fLong = (long) fDouble;
+        } else {
+            // The conversion is done by the getDouble method
+            fSource = str;
+            fStart = start;
+            fEnd = end;
+        }
+        return fType;
+    }
+
+}
@@ -58,6 +58,14 @@ public class JsonObjectBuilder extends AbstractObjectBuilder {
         return fAccessor.newObject();
     }
 
+    @Override
+    protected Object newObject(int size) {
+        if (fAccessor instanceof IJsonSizedAccessor) {
+            return ((IJsonSizedAccessor) fAccessor).newObject(size);
+        }
+        return fAccessor.newObject();
+    }
+
     @Override
     protected String toString(Object top) {
         return top.toString();
@@ -48,6 +48,9 @@ public class JsonObjectVisitor extends AbstractObjectVisitor {
         if (stack.contains(value)) {
             return;
         }
+        if (visitNumber(value, listener)) {
+            return;
+        }
         stack.add(value);
         try {
             switch (fAccessor.getType(value)) {
@@ -100,4 +103,19 @@ public class JsonObjectVisitor extends AbstractObjectVisitor {
         }
     }
 
+    /**
+     * Reports the original text of {@link JsonNumber} values to listeners
+     * accepting raw numbers. Such numbers are neither typed nor converted.
+     * 
+     * @return <code>true</code> if the number was reported
+     */
+    private boolean visitNumber(Object value, IJsonListener listener) {
+        if (!(value instanceof JsonNumber)
+            || !(listener instanceof IJsonNumberListener)) {
+            return false;
+        }
+        ((IJsonNumberListener) listener).onNumber(value.toString());
+        return true;
+    }
+
 }
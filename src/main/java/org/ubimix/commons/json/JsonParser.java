@@ -41,10 +41,28 @@ public class JsonParser extends AbstractJsonParser {
         return true;
     }
 
+    /**
+     * Puts a view on the parsed text in the buffer instead of copying
+     * characters one by one.
+     * 
+     * @see org.ubimix.commons.json.AbstractJsonParser#readText(char, byte,
+     *      org.ubimix.commons.json.TextBuffer)
+     */
+    @Override
+    protected void readText(char quot, byte endType, TextBuffer buf) {
+        int pos = fPos;
+        for (; pos < fLength; pos++) {
+            char ch = fStream.charAt(pos);
+            if (ch == quot || ch == '\\' || ch == '\0' || is(ch, endType)) {
+                break;
+            }
+        }
+        buf.append(fStream, fPos, pos);
+        fPos = pos;
+    }
+
     public void parse(CharSequence stream, IJsonListener listener) {
-        fStream = stream;
-        fLength = fStream.length();
-        fPos = 0;
+        reset(stream);
         doParse(listener);
     }
 
@@ -52,4 +70,42 @@ public class JsonParser extends AbstractJsonParser {
         parse((CharSequence) str, listener);
     }
 
+    /**
+     * Parses the next top-level object or array of the text given to the
+     * {@link #reset(CharSequence)} method. This method is used to read
+     * multiple concatenated or newline-delimited documents from the same text:
+     * 
+     * <pre>
+     * parser.reset(text);
+     * while (parser.parseNext(builder)) {
+     *     Object doc = builder.getTop();
+     *     builder.reset();
+     *     ...
+     * }
+     * </pre>
+     * 
+     * @param listener the listener notified about elements of the document
+     * @return <code>true</code> if a document was parsed and
+     *         <code>false</code> if there is no more documents in the text
+     */
+    public boolean parseNext(IJsonListener listener) {
+        return doParseNext(listener);
+    }
+
+    /**
+     * Sets a new text to parse and resets the state of this parser. This
+     * method is used to read tokens one by one with a {@link JsonReader} or
+     * documents one by one with the {@link #parseNext(IJsonListener)} method.
+     * 
+     * @param stream the text to parse
+     * @return this parser
+     */
+    public JsonParser reset(CharSequence stream) {
+        fStream = stream;
+        fLength = fStream.length();
+        fPos = 0;
+        reset();
+        return this;
+    }
+
 }
\ No newline at end of file
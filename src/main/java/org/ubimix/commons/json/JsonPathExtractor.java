@@ -0,0 +1,448 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This object extracts values corresponding to a set of JSON Pointers (like
+ * "/meta/id" or "/items/0/price") in one parsing pass. The "*" segment matches
+ * any property or array element (for example "/items/*&#47;price"). Paths are
+ * compiled in a trie; the parser skips all values which do not lead to a
+ * registered path without decoding them (see
+ * {@link AbstractJsonParser#skipValue()}). Matching primitive values are
+ * delivered as Java objects; matching objects and arrays are built with a
+ * {@link JsonObjectBuilder} and delivered when they are finished.
+ * 
+ * <pre>
+ * JsonPathExtractor extractor = new JsonPathExtractor(
+ *     &quot;/meta/id&quot;,
+ *     &quot;/items/*&#47;price&quot;);
+ * extractor.extract(text, new JsonPathExtractor.IPathListener() {
+ *     public void onValue(String path, Object value) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class JsonPathExtractor {
+
+    /**
+     * Listeners of this type are notified about values matching registered
+     * paths.
+     */
+    public interface IPathListener {
+
+        /**
+         * This method is called for each found value.
+         * 
+         * @param path the registered path matching the value
+         * @param value the found value
+         */
+        void onValue(String path, Object value);
+
+    }
+
+    /**
+     * A value built from parser events because it matches a path.
+     */
+    private static class Capture {
+
+        private final JsonObjectBuilder fBuilder = new JsonObjectBuilder();
+
+        private final int fDepth;
+
+        private final Node fNode;
+
+        public Capture(Node node, int depth) {
+            fNode = node;
+            fDepth = depth;
+        }
+
+    }
+
+    /**
+     * This listener filters parser events and notifies the path listener about
+     * matching values.
+     */
+    private static class Matcher implements IJsonListener {
+
+        private final List<Capture> fCaptures = new ArrayList<Capture>();
+
+        private int fDepth;
+
+        private int[] fIndexes = new int[16];
+
+        private final IPathListener fListener;
+
+        /**
+         * The node corresponding to the value which is going to be read
+         */
+        private Node fNext;
+
+        private Node[] fNodes = new Node[16];
+
+        private final AbstractJsonParser fParser;
+
+        public Matcher(
+            AbstractJsonParser parser,
+            Node root,
+            IPathListener listener) {
+            fParser = parser;
+            fNext = root;
+            fListener = listener;
+        }
+
+        public void beginArray() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.beginArray();
+            }
+            beginContainer(true);
+        }
+
+        public void beginArrayElement() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.beginArrayElement();
+            }
+            Node node = fNodes[fDepth - 1];
+            int index = fIndexes[fDepth - 1]++;
+            fNext = node != null ? node.getChild(index) : null;
+        }
+
+        private void beginContainer(boolean array) {
+            Node node = fNext;
+            if (node != null && node.fPaths != null) {
+                Capture capture = new Capture(node, fDepth + 1);
+                if (array) {
+                    capture.fBuilder.beginArray();
+                } else {
+                    capture.fBuilder.beginObject();
+                }
+                fCaptures.add(capture);
+            }
+            if ((node == null || !node.hasChildren()) && fCaptures.isEmpty()) {
+                fParser.skipValue();
+            }
+            if (fDepth == fNodes.length) {
+                Node[] nodes = new Node[fDepth * 2];
+                System.arraycopy(fNodes, 0, nodes, 0, fDepth);
+                fNodes = nodes;
+                int[] indexes = new int[fDepth * 2];
+                System.arraycopy(fIndexes, 0, indexes, 0, fDepth);
+                fIndexes = indexes;
+            }
+            fNodes[fDepth] = node;
+            fIndexes[fDepth] = 0;
+            fDepth++;
+            fNext = null;
+        }
+
+        public void beginObject() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.beginObject();
+            }
+            beginContainer(false);
+        }
+
+        public void beginObjectProperty(String property) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.beginObjectProperty(property);
+            }
+            Node node = fNodes[fDepth - 1];
+            fNext = node != null ? node.getChild(property) : null;
+            if (fNext == null && fCaptures.isEmpty()) {
+                fParser.skipValue();
+            }
+        }
+
+        public void endArray() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.endArray();
+            }
+            endContainer();
+        }
+
+        public void endArrayElement() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.endArrayElement();
+            }
+        }
+
+        private void endContainer() {
+            fDepth--;
+            for (int i = fCaptures.size() - 1; i >= 0; i--) {
+                Capture capture = fCaptures.get(i);
+                if (capture.fDepth > fDepth) {
+                    fCaptures.remove(i);
+                    notify(capture.fNode, capture.fBuilder.getTop());
+                }
+            }
+            fNext = null;
+        }
+
+        public void endObject() {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.endObject();
+            }
+            endContainer();
+        }
+
+        public void endObjectProperty(String property) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.endObjectProperty(property);
+            }
+        }
+
+        private void notify(Node node, Object value) {
+            for (String path : node.fPaths) {
+                fListener.onValue(path, value);
+            }
+        }
+
+        public void onValue(boolean value) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.onValue(value);
+            }
+            onValue((Object) value);
+        }
+
+        public void onValue(double value) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.onValue(value);
+            }
+            onValue((Object) value);
+        }
+
+        public void onValue(int value) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.onValue(value);
+            }
+            onValue((Object) value);
+        }
+
+        public void onValue(long value) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.onValue(value);
+            }
+            onValue((Object) value);
+        }
+
+        private void onValue(Object value) {
+            if (fNext != null && fNext.fPaths != null) {
+                notify(fNext, value);
+            }
+            fNext = null;
+        }
+
+        public void onValue(String value) {
+            for (Capture capture : fCaptures) {
+                capture.fBuilder.onValue(value);
+            }
+            onValue((Object) value);
+        }
+
+    }
+
+    /**
+     * A node of the trie of paths.
+     */
+    private static class Node {
+
+        private Node fAny;
+
+        private Map<String, Node> fChildren;
+
+        /**
+         * Paths ending in this node
+         */
+        private List<String> fPaths;
+
+        private void addPath(String path) {
+            if (fPaths == null) {
+                fPaths = new ArrayList<String>();
+            }
+            if (!fPaths.contains(path)) {
+                fPaths.add(path);
+            }
+        }
+
+        public Node getChild(int index) {
+            return fChildren != null
+                ? getChild(String.valueOf(index))
+                : fAny;
+        }
+
+        public Node getChild(String name) {
+            Node child = fChildren != null ? fChildren.get(name) : null;
+            return child != null ? child : fAny;
+        }
+
+        public boolean hasChildren() {
+            return fChildren != null || fAny != null;
+        }
+
+        /**
+         * Copies all paths of the given node in this node.
+         */
+        private void merge(Node node) {
+            if (node.fPaths != null) {
+                for (String path : node.fPaths) {
+                    addPath(path);
+                }
+            }
+            if (node.fChildren != null) {
+                for (Map.Entry<String, Node> entry : node.fChildren
+                    .entrySet()) {
+                    newChild(entry.getKey()).merge(entry.getValue());
+                }
+            }
+            if (node.fAny != null) {
+                newChild(ANY).merge(node.fAny);
+            }
+        }
+
+        public Node newChild(String name) {
+            if (ANY.equals(name)) {
+                if (fAny == null) {
+                    fAny = new Node();
+                }
+                return fAny;
+            }
+            if (fChildren == null) {
+                fChildren = new HashMap<String, Node>();
+            }
+            Node child = fChildren.get(name);
+            if (child == null) {
+                child = new Node();
+                fChildren.put(name, child);
+            }
+            return child;
+        }
+
+        /**
+         * Adds paths matched by the "any" child to all other children, so
+         * that only one node should be checked for each property.
+         */
+        public void normalize() {
+            if (fChildren != null) {
+                for (Node child : fChildren.values()) {
+                    if (fAny != null) {
+                        child.merge(fAny);
+                    }
+                    child.normalize();
+                }
+            }
+            if (fAny != null) {
+                fAny.normalize();
+            }
+        }
+
+    }
+
+    private static final String ANY = "*";
+
+    /**
+     * Splits the given JSON Pointer in segments.
+     * 
+     * @param path the path to split
+     * @return a list of unescaped path segments
+     */
+    private static List<String> split(String path) {
+        List<String> result = new ArrayList<String>();
+        if (path.length() == 0) {
+            return result;
+        }
+        if (path.charAt(0) != '/') {
+            throw new IllegalArgumentException("Path should start with '/': "
+                + path);
+        }
+        StringBuilder buf = new StringBuilder();
+        for (int i = 1; i <= path.length(); i++) {
+            char ch = i < path.length() ? path.charAt(i) : '/';
+            if (ch == '/') {
+                result.add(buf.toString());
+                buf.setLength(0);
+            } else if (ch == '~' && i + 1 < path.length()) {
+                char next = path.charAt(++i);
+                buf.append(next == '1' ? '/' : next == '0' ? '~' : next);
+            } else {
+                buf.append(ch);
+            }
+        }
+        return result;
+    }
+
+    private final Node fRoot = new Node();
+
+    /**
+     * @param paths JSON Pointers of values to extract
+     */
+    public JsonPathExtractor(Collection<String> paths) {
+        for (String path : paths) {
+            Node node = fRoot;
+            for (String segment : split(path)) {
+                node = node.newChild(segment);
+            }
+            node.addPath(path);
+        }
+        fRoot.normalize();
+    }
+
+    /**
+     * @param paths JSON Pointers of values to extract
+     */
+    public JsonPathExtractor(String... paths) {
+        this(Arrays.asList(paths));
+    }
+
+    /**
+     * Parses the given text and notifies the listener about all values
+     * matching registered paths.
+     * 
+     * @param text the text to parse
+     * @param listener the listener to notify
+     */
+    public void extract(CharSequence text, IPathListener listener) {
+        JsonParser parser = new JsonParser();
+        parser.parse(text, newListener(parser, listener));
+    }
+
+    /**
+     * Returns a new parser listener notifying the given path listener about
+     * matching values. This method allows to extract values using any parser
+     * (for example parsers reading streams or byte buffers).
+     * 
+     * @param parser the parser which will notify the returned listener; this
+     *        parser is used to skip values which do not match registered
+     *        paths
+     * @param listener the listener to notify about found values
+     * @return a new listener which should be used to parse one document
+     */
+    public IJsonListener newListener(
+        AbstractJsonParser parser,
+        IPathListener listener) {
+        return new Matcher(parser, fRoot, listener);
+    }
+
+}
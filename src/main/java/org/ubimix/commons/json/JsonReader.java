@@ -0,0 +1,185 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * This reader gives access to tokens of a JSON document one by one ("pull"
+ * mode). It can be used to read only required fields of big documents without
+ * creating intermediate objects. Example:
+ * 
+ * <pre>
+ * JsonReader reader = new JsonReader(&quot;{id:123,items:[1,2,3]}&quot;);
+ * reader.nextToken(); // BEGIN_OBJECT
+ * while (reader.nextToken() == JsonToken.PROPERTY) {
+ *     String name = reader.getString();
+ *     JsonToken token = reader.nextToken();
+ *     if (&quot;id&quot;.equals(name)) {
+ *         int id = reader.getInt();
+ *     } else {
+ *         reader.skipChildren();
+ *     }
+ * }
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class JsonReader {
+
+    private final AbstractJsonParser fParser;
+
+    /**
+     * Creates a new reader using the given parser as a source of tokens.
+     * 
+     * @param parser the parser providing tokens; this parser should be already
+     *        positioned at the beginning of the document (see for example
+     *        {@link JsonParser#reset(CharSequence)})
+     */
+    public JsonReader(AbstractJsonParser parser) {
+        fParser = parser;
+    }
+
+    /**
+     * Creates a new reader for the specified text.
+     * 
+     * @param text the text to read
+     */
+    public JsonReader(CharSequence text) {
+        this(new JsonParser().reset(text));
+    }
+
+    /**
+     * Returns the value of the current {@link JsonToken#BOOLEAN} token. For
+     * other tokens this method returns <code>false</code>.
+     */
+    public boolean getBoolean() {
+        return getToken() == JsonToken.BOOLEAN && fParser.getBoolean();
+    }
+
+    /**
+     * Returns the number of objects and arrays opened at the current position.
+     * It is <code>0</code> before the first token and after the end of the
+     * document.
+     */
+    public int getDepth() {
+        return fParser.getDepth();
+    }
+
+    /**
+     * Returns the value of the current numeric token as a double. For
+     * non-numeric tokens this method returns <code>0</code>.
+     */
+    public double getDouble() {
+        return isNumber() ? fParser.getNumber().getDouble() : 0;
+    }
+
+    /**
+     * Returns the value of the current numeric token as an integer. Longs and
+     * doubles are truncated. For non-numeric tokens this method returns
+     * <code>0</code>.
+     */
+    public int getInt() {
+        return (int) getLong();
+    }
+
+    /**
+     * Returns the value of the current numeric token as a long. Doubles are
+     * truncated. For non-numeric tokens this method returns <code>0</code>.
+     */
+    public long getLong() {
+        JsonToken token = getToken();
+        if (token == JsonToken.INTEGER) {
+            return fParser.getNumber().getInteger();
+        } else if (token == JsonToken.LONG) {
+            return fParser.getNumber().getLong();
+        } else if (token == JsonToken.DOUBLE) {
+            return (long) fParser.getNumber().getDouble();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the string representation of the current token. For property
+     * tokens it returns the (interned) name of the property. For string,
+     * numeric and boolean tokens it returns their text. For all other tokens
+     * this method returns <code>null</code>.
+     */
+    public String getString() {
+        JsonToken token = getToken();
+        if (token == JsonToken.PROPERTY) {
+            return fParser.getPropertyName();
+        }
+        if (token == JsonToken.STRING
+            || token == JsonToken.BOOLEAN
+            || isNumber()) {
+            return fParser.getText().toString();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the text of the current property or value token without creating
+     * a new string. The returned sequence is valid only until the next call of
+     * the {@link #nextToken()} method.
+     */
+    public CharSequence getText() {
+        return fParser.getText();
+    }
+
+    /**
+     * Returns the current token or <code>null</code> if the reading is not
+     * started yet.
+     */
+    public JsonToken getToken() {
+        return fParser.getToken();
+    }
+
+    private boolean isNumber() {
+        JsonToken token = getToken();
+        return token == JsonToken.INTEGER
+            || token == JsonToken.LONG
+            || token == JsonToken.DOUBLE;
+    }
+
+    /**
+     * Reads and returns the next token.
+     * 
+     * @return the next token; {@link JsonToken#END} is returned when the
+     *         document is finished
+     */
+    public JsonToken nextToken() {
+        return fParser.nextToken();
+    }
+
+    /**
+     * If the current token starts an object or an array then this method skips
+     * all tokens up to the corresponding end token (which becomes the current
+     * token). For all other tokens this method does nothing. The skipped
+     * content is not decoded: the parser just counts brackets and quotes (see
+     * {@link AbstractJsonParser#skipValue()}).
+     * 
+     * @return the current token after skipping
+     */
+    public JsonToken skipChildren() {
+        JsonToken token = getToken();
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            fParser.skipValue();
+            token = fParser.nextToken();
+        }
+        return token;
+    }
+
+}
@@ -21,11 +21,40 @@ import java.util.Stack;
 /**
  * @author kotelnikov
  */
-public abstract class JsonSerializer implements IJsonListener {
+public abstract class JsonSerializer implements IJsonNumberListener {
+
+    /**
+     * Escape sequences for characters which can not be written in JSON
+     * strings as is; <code>null</code> means that the character is printed
+     * without modifications.
+     */
+    private static final String[] ESCAPES = new String['\\' + 1];
 
     private static final String QUOT = "\"";
 
-    private StringBuffer fBuf = new StringBuffer();
+    /**
+     * Characters reported as special by the
+     * {@link #escape(String, StringBuffer)} method in addition to escaped
+     * ones.
+     */
+    private static final boolean[] SPECIAL = new boolean['=' + 1];
+
+    static {
+        String hex = "0123456789abcdef";
+        for (char ch = 0; ch < 0x20; ch++) {
+            ESCAPES[ch] = "\\u00" + hex.charAt(ch >> 4) + hex.charAt(ch & 0xF);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        String special = "':;+-/=!";
+        for (int i = 0; i < special.length(); i++) {
+            SPECIAL[special.charAt(i)] = true;
+        }
+    }
 
     private int fIdent;
 
@@ -64,10 +93,8 @@ public abstract class JsonSerializer implements IJsonListener {
             print(",");
         }
         printIdent();
-        fBuf.delete(0, fBuf.length());
-        escape(property, fBuf);
         print(QUOT);
-        print(fBuf.toString());
+        printEscaped(property);
         print(QUOT);
         print(":");
     }
@@ -90,69 +117,30 @@ public abstract class JsonSerializer implements IJsonListener {
     public void endObjectProperty(String property) {
     }
 
+    /**
+     * Appends the escaped string to the given buffer and returns
+     * <code>true</code> if the string contains special characters.
+     */
     protected boolean escape(String str, StringBuffer buf) {
         boolean result = false;
         if (str == null) {
             return result;
         }
         int len = str.length();
-        int bufLen = len * 2;
-        if (bufLen < 0) {
-            bufLen = Integer.MAX_VALUE;
-        }
-        for (int x = 0; x < len; x++) {
-            char aChar = str.charAt(x);
-            switch (aChar) {
-                case '\"':
-                    buf.append("\\\"");
-                    result = true;
-                    break;
-                case '\t':
-                    buf.append("\\t");
-                    result = true;
-                    break;
-                case '\n':
-                    buf.append("\\n");
-                    result = true;
-                    break;
-                case '\r':
-                    buf.append("\\r");
-                    result = true;
-                    break;
-                case '\f':
-                    buf.append("\\f");
-                    result = true;
-                    break;
-                case '\\':
-                    buf.append("\\\\");
-                    result = true;
-                    break;
-                case '\'': // Fall through
-                case ':': // Fall through
-                case ';': // Fall through
-                case '+': // Fall through
-                case '-': // Fall through
-                case '/': // Fall through
-                case '=': // Fall through
-                case '!':
-                    buf.append(aChar);
-                    result = true;
-                    break;
-                default:
-                    if ((aChar > 61) && (aChar < 127)) {
-                        buf.append(aChar);
-                    } else if (aChar < 0x0020) {
-                        buf.append("\\u");
-                        buf.append(Integer.toHexString((aChar >> 12) & 0xF));
-                        buf.append(Integer.toHexString((aChar >> 8) & 0xF));
-                        buf.append(Integer.toHexString((aChar >> 4) & 0xF));
-                        buf.append(Integer.toHexString(aChar & 0xF));
-                        result = true;
-                    } else {
-                        buf.append(aChar);
-                    }
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = str.charAt(i);
+            String escape = ch < ESCAPES.length ? ESCAPES[ch] : null;
+            if (escape != null) {
+                buf.append(str, start, i);
+                buf.append(escape);
+                start = i + 1;
+                result = true;
+            } else if (ch < SPECIAL.length && SPECIAL[ch]) {
+                result = true;
             }
         }
+        buf.append(str, start, len);
         return result;
     }
 
@@ -163,6 +151,75 @@ public abstract class JsonSerializer implements IJsonListener {
         return num;
     }
 
+    /**
+     * Returns <code>true</code> if the given text is a number in the standard
+     * JSON notation: <code>-?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?</code>
+     */
+    private static boolean isStrictNumber(CharSequence value) {
+        int len = value.length();
+        int pos = 0;
+        if (pos < len && value.charAt(pos) == '-') {
+            pos++;
+        }
+        if (pos < len && value.charAt(pos) == '0') {
+            pos++;
+        } else {
+            int start = pos;
+            pos = skipDigits(value, pos);
+            if (pos == start) {
+                return false;
+            }
+        }
+        if (pos < len && value.charAt(pos) == '.') {
+            int start = ++pos;
+            pos = skipDigits(value, pos);
+            if (pos == start) {
+                return false;
+            }
+        }
+        if (pos < len
+            && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < len
+                && (value.charAt(pos) == '+' || value.charAt(pos) == '-')) {
+                pos++;
+            }
+            int start = pos;
+            pos = skipDigits(value, pos);
+            if (pos == start) {
+                return false;
+            }
+        }
+        return pos == len;
+    }
+
+    /**
+     * Prints numbers in the standard JSON notation as is; all other numbers
+     * are converted and printed in the same way as values reported by the
+     * <code>onValue</code> methods.
+     */
+    public void onNumber(CharSequence value) {
+        if (isStrictNumber(value)) {
+            print(value.toString());
+            return;
+        }
+        JsonNumberParser parser = new JsonNumberParser();
+        switch (parser.parse(value)) {
+            case INTEGER:
+                onValue(parser.getInteger());
+                break;
+            case LONG:
+                onValue(parser.getLong());
+                break;
+            case DOUBLE:
+                onValue(parser.getDouble());
+                break;
+            default:
+                onValue(value.toString());
+                break;
+        }
+    }
+
     public void onValue(boolean value) {
         print(Boolean.toString(value));
     }
@@ -184,13 +241,24 @@ public abstract class JsonSerializer implements IJsonListener {
             print("null");
         } else {
             print(QUOT);
-            fBuf.delete(0, fBuf.length());
-            escape(value, fBuf);
-            print(fBuf.toString());
+            printEscaped(value);
             print(QUOT);
         }
     }
 
+    /**
+     * Prints the specified region of the given sequence. This method is used
+     * to print escaped strings; subclasses can override it to copy characters
+     * without creating new strings.
+     * 
+     * @param str the sequence to print
+     * @param start the position of the first character to print
+     * @param end the position following the last character to print
+     */
+    protected void print(CharSequence str, int start, int end) {
+        print(str.subSequence(start, end).toString());
+    }
+
     protected abstract void print(String string);
 
     protected void printIdent() {
@@ -205,4 +273,44 @@ public abstract class JsonSerializer implements IJsonListener {
         }
     }
 
+    /**
+     * Prints the escaped string. Runs of characters without escaping are
+     * printed as regions of the original string; the string is printed
+     * with one call if it does not contain characters to escape.
+     */
+    private void printEscaped(String str) {
+        if (str == null) {
+            return;
+        }
+        int len = str.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = str.charAt(i);
+            if (ch < ESCAPES.length && ESCAPES[ch] != null) {
+                if (start < i) {
+                    print(str, start, i);
+                }
+                print(ESCAPES[ch]);
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            print(str);
+        } else if (start < len) {
+            print(str, start, len);
+        }
+    }
+
+    private static int skipDigits(CharSequence value, int pos) {
+        int len = value.length();
+        while (pos < len) {
+            char ch = value.charAt(pos);
+            if (ch < '0' || ch > '9') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
 }
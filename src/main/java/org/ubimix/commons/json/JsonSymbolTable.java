@@ -0,0 +1,128 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * A bounded table of canonical strings used by parsers to intern property
+ * names. Symbols are looked up directly by the characters of the given
+ * sequences, so a string is created only when a new symbol is added to the
+ * table. When all slots of a probed region are occupied the new symbol
+ * replaces an old one, so the size of the table never grows. Instances of
+ * this class are not thread-safe.
+ * 
+ * @author kotelnikov
+ */
+public class JsonSymbolTable {
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    /**
+     * The maximal number of slots checked for each symbol
+     */
+    private static final int PROBES = 4;
+
+    private final int[] fHashes;
+
+    private final int fMask;
+
+    private final int fMaxLength;
+
+    private final String[] fSymbols;
+
+    public JsonSymbolTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity the maximal number of symbols in the table; it is
+     *        rounded to the next power of two
+     * @param maxLength the maximal length of interned symbols; longer
+     *        sequences are just transformed in strings
+     */
+    public JsonSymbolTable(int capacity, int maxLength) {
+        int size = PROBES;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        fMask = size - 1;
+        fSymbols = new String[size];
+        fHashes = new int[size];
+        fMaxLength = maxLength;
+    }
+
+    /**
+     * Removes all symbols from this table.
+     */
+    public void clear() {
+        for (int i = 0; i < fSymbols.length; i++) {
+            fSymbols[i] = null;
+            fHashes[i] = 0;
+        }
+    }
+
+    private boolean equals(String symbol, CharSequence str, int len) {
+        if (symbol.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (symbol.charAt(i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the canonical string corresponding to the given sequence.
+     * 
+     * @param str the sequence of characters
+     * @return a canonical string with the same characters as the given
+     *         sequence
+     */
+    public String intern(CharSequence str) {
+        int len = str.length();
+        if (len > fMaxLength) {
+            return str.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + str.charAt(i);
+        }
+        int idx = (hash ^ (hash >>> 16)) & fMask;
+        for (int i = 0; i < PROBES; i++) {
+            int pos = (idx + i) & fMask;
+            String symbol = fSymbols[pos];
+            if (symbol == null) {
+                return put(pos, hash, str);
+            }
+            if (fHashes[pos] == hash && equals(symbol, str, len)) {
+                return symbol;
+            }
+        }
+        return put(idx, hash, str);
+    }
+
+    private String put(int pos, int hash, CharSequence str) {
+        String symbol = str.toString();
+        fSymbols[pos] = symbol;
+        fHashes[pos] = hash;
+        return symbol;
+    }
+
+}
@@ -0,0 +1,644 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+
+/**
+ * A structural index of a JSON text. The constructor reads the text once and
+ * records all tokens in a flat <code>int[]</code> "tape": the type of each
+ * token, offsets of property names and values in the text and links between
+ * the beginning and the end of each object and array. No maps or lists are
+ * created at this step and numbers are not converted; only strings with
+ * escape sequences are decoded because their values are not present in the
+ * text as is.
+ * <p>
+ * The {@link #getRoot()} method returns a read-only {@link Map} or
+ * {@link java.util.List} view on the root element. Lookups in these views are
+ * resolved through the tape, and values are created only when they are read.
+ * The views can be wrapped in {@link JsonObject} or {@link JsonArray}
+ * instances:
+ * </p>
+ * 
+ * <pre>
+ * JsonTape tape = new JsonTape(text);
+ * JsonObject obj = JsonObject.newValue(tape.getRoot());
+ * String name = obj.getString(&quot;name&quot;);
+ * </pre>
+ * <p>
+ * Properties are searched by a linear scan of the object, so the views are
+ * intended for reading a few fields from big documents. If an object contains
+ * the same property more than once then the duplicates are merged when the
+ * index is built: the property keeps the position of its first occurrence
+ * and the value of the last one, as in maps created by the
+ * {@link JsonObjectBuilder}. Like parsers, views are not thread-safe.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public final class JsonTape {
+
+    /**
+     * A read-only view on an array of the tape.
+     */
+    private class TapeArray extends AbstractList<Object> {
+
+        private final int fEntry;
+
+        /**
+         * The entry of the last accessed element; it is used to iterate over
+         * elements by index without scanning the array from the beginning.
+         */
+        private int fLastEntry;
+
+        private int fLastIndex;
+
+        public TapeArray(int entry) {
+            fEntry = entry;
+            fLastEntry = entry + 1;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: "
+                    + index
+                    + ", Size: "
+                    + size());
+            }
+            if (index < fLastIndex) {
+                fLastIndex = 0;
+                fLastEntry = fEntry + 1;
+            }
+            while (fLastIndex < index) {
+                fLastEntry = next(fLastEntry);
+                fLastIndex++;
+            }
+            return getValue(fLastEntry);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+
+                private int fNext = fEntry + 1;
+
+                public boolean hasNext() {
+                    return fNext < getEnd(fEntry);
+                }
+
+                public Object next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Object value = getValue(fNext);
+                    fNext = JsonTape.this.next(fNext);
+                    return value;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return fTape[fEntry * 3 + 2];
+        }
+    }
+
+    /**
+     * A property of an object of the tape.
+     */
+    private class TapeEntry implements Map.Entry<String, Object> {
+
+        private final int fEnd;
+
+        private final int fEntry;
+
+        public TapeEntry(int entry, int end) {
+            fEntry = entry;
+            fEnd = end;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry<?, ?>)) {
+                return false;
+            }
+            Map.Entry<?, ?> o = (Map.Entry<?, ?>) obj;
+            return equals(getKey(), o.getKey())
+                && equals(getValue(), o.getValue());
+        }
+
+        private boolean equals(Object first, Object second) {
+            return first != null ? first.equals(second) : second == null;
+        }
+
+        public String getKey() {
+            return getString(fEntry);
+        }
+
+        public Object getValue() {
+            return JsonTape.this.getValue(getValueEntry(fEntry, fEnd));
+        }
+
+        @Override
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key != null ? key.hashCode() : 0)
+                ^ (value != null ? value.hashCode() : 0);
+        }
+
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * A read-only view on an object of the tape.
+     */
+    private class TapeObject extends AbstractMap<String, Object> {
+
+        private final int fEntry;
+
+        public TapeObject(int entry) {
+            fEntry = entry;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new Iterator<Map.Entry<String, Object>>() {
+
+                        private final int fEnd = getEnd(fEntry);
+
+                        private int fNext = nextProperty(fEntry + 1, fEnd);
+
+                        public boolean hasNext() {
+                            return fNext < fEnd;
+                        }
+
+                        public Map.Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            TapeEntry entry = new TapeEntry(fNext, fEnd);
+                            fNext = nextProperty(
+                                JsonTape.this.next(fNext),
+                                fEnd);
+                            return entry;
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return TapeObject.this.size();
+                }
+            };
+        }
+
+        /**
+         * Returns the entry of the property with the given name or
+         * <code>-1</code> if there is no such a property.
+         */
+        private int find(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            String name = (String) key;
+            int end = getEnd(fEntry);
+            int e = nextProperty(fEntry + 1, end);
+            while (e < end) {
+                if (textEquals(e, name)) {
+                    return e;
+                }
+                e = nextProperty(next(e), end);
+            }
+            return -1;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int entry = find(key);
+            return entry >= 0
+                ? getValue(getValueEntry(entry, getEnd(fEntry)))
+                : null;
+        }
+
+        @Override
+        public int size() {
+            return fTape[fEntry * 3 + 2];
+        }
+    }
+
+    private static final int BEGIN_ARRAY = JsonToken.BEGIN_ARRAY.ordinal();
+
+    private static final int BEGIN_OBJECT = JsonToken.BEGIN_OBJECT.ordinal();
+
+    private static final int PROPERTY = JsonToken.PROPERTY.ordinal();
+
+    /**
+     * This flag marks property names followed by duplicates; the value of
+     * such a property is the value of the last duplicate.
+     */
+    private static final int REDIRECTED = 1 << 17;
+
+    /**
+     * This flag marks duplicated property names merged with the first
+     * property having the same name.
+     */
+    private static final int SHADOWED = 1 << 16;
+
+    private static final JsonToken[] TOKENS = JsonToken.values();
+
+    /**
+     * The mask of the token type in the first integer of each entry
+     */
+    private static final int TYPE_MASK = 0xFFFF;
+
+    /**
+     * The number of entries in the tape
+     */
+    private int fSize;
+
+    /**
+     * The hash table used to find duplicated property names
+     */
+    private int[] fSlots;
+
+    /**
+     * Strings which are not simple regions of the text (for example strings
+     * with escape sequences)
+     */
+    private String[] fStrings = new String[8];
+
+    private int fStringCount;
+
+    /**
+     * Three integers for each token. The first one is the type of the token.
+     * For objects and arrays the second and the third integers are the index
+     * of the end token and the number of properties or elements. For strings,
+     * property names and numbers these are the position and the length of the
+     * token text (a negative position refers to the list of strings). For
+     * boolean values the second integer is <code>1</code> for
+     * <code>true</code>. End tokens refer to the corresponding begin tokens.
+     * Non-quoted values which are not literals are recorded as
+     * {@link JsonToken#DOUBLE} tokens; their real type is recognized only
+     * when they are read.
+     */
+    private int[] fTape = new int[3 * 64];
+
+    private final CharSequence fText;
+
+    /**
+     * Reads the given text and builds the index of its first top-level object
+     * or array.
+     * 
+     * @param text the text to index
+     */
+    public JsonTape(CharSequence text) {
+        fText = text;
+        JsonParser parser = new JsonParser();
+        parser.setSymbolTable(null);
+        parser.setNumberTypes(false);
+        parser.reset(text);
+        int[] stack = new int[16];
+        int depth = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END) {
+            if (fSize * 3 == fTape.length) {
+                int[] tape = new int[fTape.length * 2];
+                System.arraycopy(fTape, 0, tape, 0, fTape.length);
+                fTape = tape;
+            }
+            int entry = fSize++;
+            int idx = entry * 3;
+            fTape[idx] = token.ordinal();
+            if (depth > 0
+                && token != JsonToken.END_ARRAY
+                && token != JsonToken.END_OBJECT) {
+                int parent = stack[depth - 1] * 3;
+                boolean array = fTape[parent] == BEGIN_ARRAY;
+                if (array == (token != JsonToken.PROPERTY)) {
+                    fTape[parent + 2]++;
+                }
+            }
+            switch (token) {
+                case BEGIN_ARRAY:
+                case BEGIN_OBJECT:
+                    if (depth == stack.length) {
+                        int[] s = new int[depth * 2];
+                        System.arraycopy(stack, 0, s, 0, depth);
+                        stack = s;
+                    }
+                    stack[depth++] = entry;
+                    fTape[idx + 1] = 0;
+                    fTape[idx + 2] = 0;
+                    break;
+                case END_ARRAY:
+                case END_OBJECT:
+                    int begin = stack[--depth];
+                    fTape[begin * 3 + 1] = entry;
+                    fTape[idx + 1] = begin;
+                    fTape[idx + 2] = 0;
+                    if (token == JsonToken.END_OBJECT
+                        && fTape[begin * 3 + 2] > 1) {
+                        mergeDuplicates(begin);
+                    }
+                    break;
+                case BOOLEAN:
+                    fTape[idx + 1] = parser.getBoolean() ? 1 : 0;
+                    fTape[idx + 2] = 0;
+                    break;
+                case NULL:
+                    fTape[idx + 1] = 0;
+                    fTape[idx + 2] = 0;
+                    break;
+                default:
+                    TextBuffer buf = (TextBuffer) parser.getText();
+                    int offset = buf.getSourceOffset(text);
+                    if (offset < 0) {
+                        offset = -1 - addString(buf.toString());
+                    }
+                    fTape[idx + 1] = offset;
+                    fTape[idx + 2] = buf.length();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Adds the given string to the list of strings and returns its index.
+     */
+    private int addString(String str) {
+        if (fStringCount == fStrings.length) {
+            String[] strings = new String[fStringCount * 2];
+            System.arraycopy(fStrings, 0, strings, 0, fStringCount);
+            fStrings = strings;
+        }
+        fStrings[fStringCount] = str;
+        return fStringCount++;
+    }
+
+    /**
+     * Returns the character of the text of the given entry.
+     */
+    private char charAt(int entry, int index) {
+        int offset = fTape[entry * 3 + 1];
+        return offset < 0
+            ? fStrings[-1 - offset].charAt(index)
+            : fText.charAt(offset + index);
+    }
+
+    /**
+     * Returns the index of the end token of the given object or array.
+     */
+    private int getEnd(int entry) {
+        return fTape[entry * 3 + 1];
+    }
+
+    /**
+     * Returns the root element of the indexed document as a read-only
+     * {@link Map} (for objects) or {@link java.util.List} (for arrays).
+     * 
+     * @return the root element or <code>null</code> if the text does not
+     *         contain objects or arrays
+     */
+    public Object getRoot() {
+        return fSize > 0 ? getValue(0) : null;
+    }
+
+    /**
+     * Returns the number of tokens in the tape.
+     */
+    public int getSize() {
+        return fSize;
+    }
+
+    /**
+     * Returns the string value of the given entry.
+     */
+    private String getString(int entry) {
+        int idx = entry * 3;
+        int offset = fTape[idx + 1];
+        if (offset < 0) {
+            return fStrings[-1 - offset];
+        }
+        return fText.subSequence(offset, offset + fTape[idx + 2]).toString();
+    }
+
+    /**
+     * Returns the entry of the value of the given property. For properties
+     * followed by duplicates it is the value of the last duplicate.
+     * 
+     * @param property the entry of the property name
+     * @param end the end of the object containing the property
+     */
+    private int getValueEntry(int property, int end) {
+        int result = property + 1;
+        if ((fTape[property * 3] & REDIRECTED) != 0) {
+            for (int e = next(property); e < end; e = next(e)) {
+                if ((fTape[e * 3] & SHADOWED) != 0 && textEquals(property, e)) {
+                    result = e + 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates and returns the value of the given entry.
+     */
+    private Object getValue(int entry) {
+        int idx = entry * 3;
+        JsonToken token = TOKENS[fTape[idx]];
+        switch (token) {
+            case BEGIN_ARRAY:
+                return new TapeArray(entry);
+            case BEGIN_OBJECT:
+                return new TapeObject(entry);
+            case BOOLEAN:
+                return fTape[idx + 1] != 0;
+            case NULL:
+                return null;
+            case STRING:
+                return getString(entry);
+            default:
+                // Non-quoted values are recognized only now
+                JsonNumberParser parser = new JsonNumberParser();
+                int offset = fTape[idx + 1];
+                JsonType type = offset < 0
+                    ? parser.parse(fStrings[-1 - offset])
+                    : parser.parse(fText, offset, offset + fTape[idx + 2]);
+                switch (type) {
+                    case INTEGER:
+                        return parser.getInteger();
+                    case LONG:
+                        return parser.getLong();
+                    case DOUBLE:
+                        return parser.getDouble();
+                    default:
+                        return getString(entry);
+                }
+        }
+    }
+
+    /**
+     * Returns the hash code of the text of the given entry; it is the same as
+     * the hash code of the corresponding string.
+     */
+    private int hash(int entry) {
+        int offset = fTape[entry * 3 + 1];
+        if (offset < 0) {
+            return fStrings[-1 - offset].hashCode();
+        }
+        int result = 0;
+        int end = offset + fTape[entry * 3 + 2];
+        for (int i = offset; i < end; i++) {
+            result = 31 * result + fText.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Merges properties of the given object having the same name. The first
+     * property is marked as redirected to the last value and all other
+     * properties are marked as shadowed and they are not counted anymore.
+     */
+    private void mergeDuplicates(int object) {
+        int count = fTape[object * 3 + 2];
+        int size = Integer.highestOneBit(count) * 4;
+        if (fSlots == null || fSlots.length < size) {
+            fSlots = new int[size];
+        }
+        int[] slots = fSlots;
+        Arrays.fill(slots, 0, size, -1);
+        int mask = size - 1;
+        int end = getEnd(object);
+        for (int e = object + 1; e < end; e = next(e)) {
+            int i = hash(e) & mask;
+            while (slots[i] >= 0 && !textEquals(slots[i], e)) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] < 0) {
+                slots[i] = e;
+            } else {
+                fTape[slots[i] * 3] |= REDIRECTED;
+                fTape[e * 3] |= SHADOWED;
+                fTape[object * 3 + 2]--;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the entry following the value of the given entry.
+     * For property names it skips the name and the value of the property.
+     */
+    private int next(int entry) {
+        int type = fTape[entry * 3] & TYPE_MASK;
+        if (type == BEGIN_ARRAY || type == BEGIN_OBJECT) {
+            return getEnd(entry) + 1;
+        }
+        if (type == PROPERTY) {
+            return next(entry + 1);
+        }
+        return entry + 1;
+    }
+
+    /**
+     * Returns the first property starting from the given entry which is not
+     * shadowed by a previous property with the same name.
+     * 
+     * @param entry the entry of a property name
+     * @param end the end of the object
+     * @return the entry of the property or the end of the object
+     */
+    private int nextProperty(int entry, int end) {
+        while (entry < end && (fTape[entry * 3] & SHADOWED) != 0) {
+            entry = next(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns <code>true</code> if the given entries have the same text.
+     */
+    private boolean textEquals(int first, int second) {
+        int len = fTape[first * 3 + 2];
+        if (len != fTape[second * 3 + 2]) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (charAt(first, i) != charAt(second, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the text of the given entry is equal to the
+     * specified string.
+     */
+    private boolean textEquals(int entry, String str) {
+        int idx = entry * 3;
+        int offset = fTape[idx + 1];
+        if (offset < 0) {
+            return str.equals(fStrings[-1 - offset]);
+        }
+        int len = fTape[idx + 2];
+        if (len != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (fText.charAt(offset + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,79 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * Tokens returned by parsers in the "pull" mode.
+ * 
+ * @author kotelnikov
+ * @see JsonReader
+ */
+public enum JsonToken {
+    /**
+     * The beginning of an array
+     */
+    BEGIN_ARRAY,
+    /**
+     * The beginning of an object
+     */
+    BEGIN_OBJECT,
+    /**
+     * A boolean value
+     */
+    BOOLEAN,
+    /**
+     * A numeric value which can not be represented as an integer or a long
+     */
+    DOUBLE,
+    /**
+     * The end of the parsed document
+     */
+    END,
+    /**
+     * The end of an array
+     */
+    END_ARRAY,
+    /**
+     * The end of an object
+     */
+    END_OBJECT,
+    /**
+     * An integer value
+     */
+    INTEGER,
+    /**
+     * A long value
+     */
+    LONG,
+    /**
+     * A null value
+     */
+    NULL,
+    /**
+     * The name of an object property
+     */
+    PROPERTY,
+    /**
+     * A property value skipped on request of the listener (see
+     * {@link AbstractJsonParser#skipValue()})
+     */
+    SKIPPED,
+    /**
+     * A string value
+     */
+    STRING
+}
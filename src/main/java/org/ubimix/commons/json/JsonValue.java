@@ -3,6 +3,7 @@
  */
 package org.ubimix.commons.json;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
@@ -18,6 +19,44 @@ import org.ubimix.commons.json.IJsonAccessor.JsonType;
  */
 public abstract class JsonValue {
 
+    /**
+     * This serializer writes all tokens in an {@link Appendable} object. The
+     * first I/O error stops the serialization.
+     */
+    private static class AppendableSerializer extends JsonSerializer {
+
+        private IOException fError;
+
+        private final Appendable fOut;
+
+        public AppendableSerializer(Appendable out, int ident) {
+            super(ident);
+            fOut = out;
+        }
+
+        public void checkError() throws IOException {
+            if (fError != null) {
+                throw fError;
+            }
+        }
+
+        @Override
+        protected void print(CharSequence str, int start, int end) {
+            if (fError == null) {
+                try {
+                    fOut.append(str, start, end);
+                } catch (IOException e) {
+                    fError = e;
+                }
+            }
+        }
+
+        @Override
+        protected void print(String string) {
+            print(string, 0, string.length());
+        }
+    }
+
     /**
      * Instances of this type are used to create wrappers of a specific type for
      * JSON objects.
@@ -372,4 +411,18 @@ public abstract class JsonValue {
         return fAccessor.serialize(fObject);
     }
 
+    /**
+     * Writes this value in the given output. The written text is the same as
+     * the text returned by the {@link #toString()} method but it is not
+     * accumulated in memory.
+     * 
+     * @param out the output where the serialized value is written
+     * @throws IOException if the output can not be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        AppendableSerializer serializer = new AppendableSerializer(out, 2);
+        new JsonObjectVisitor(fAccessor).visit(fObject, serializer);
+        serializer.checkError();
+    }
+
 }
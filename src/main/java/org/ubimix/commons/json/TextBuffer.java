@@ -0,0 +1,277 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+/**
+ * A reusable character sequence used by parsers to read tokens. It can work
+ * in two modes: as a view on a region of another character sequence (for
+ * example, on the parsed text) or as a growable character buffer. A view is
+ * transformed in a buffer when new characters are appended to it. Instances
+ * of this class are reused so the content of a sequence is valid only until
+ * the next token is read.
+ * 
+ * @author kotelnikov
+ */
+public final class TextBuffer implements CharSequence {
+
+    private char[] fArray = new char[64];
+
+    private int fLength;
+
+    private int fOffset;
+
+    /**
+     * The sequence wrapped by this view; it is <code>null</code> when
+     * characters are stored in the internal array.
+     */
+    private CharSequence fSource;
+
+    public TextBuffer() {
+    }
+
+    /**
+     * Appends the given character to this buffer.
+     * 
+     * @param ch the character to append
+     */
+    public void append(char ch) {
+        if (fSource != null) {
+            detach(1);
+        } else if (fOffset + fLength == fArray.length) {
+            grow(1);
+        }
+        fArray[fOffset + fLength++] = ch;
+    }
+
+    /**
+     * Appends the specified region of the given array.
+     * 
+     * @param array the array containing characters to append
+     * @param start the position of the first character to append
+     * @param end the position following the last character to append
+     */
+    public void append(char[] array, int start, int end) {
+        int len = end - start;
+        if (len <= 0) {
+            return;
+        }
+        if (fSource != null) {
+            detach(len);
+        } else if (fOffset + fLength + len > fArray.length) {
+            grow(len);
+        }
+        System.arraycopy(array, start, fArray, fOffset + fLength, len);
+        fLength += len;
+    }
+
+    /**
+     * Appends the specified region of the given array of ASCII bytes. Each
+     * byte is transformed in one character.
+     * 
+     * @param array the array containing bytes to append
+     * @param start the position of the first byte to append
+     * @param end the position following the last byte to append
+     */
+    public void appendAscii(byte[] array, int start, int end) {
+        int len = end - start;
+        if (len <= 0) {
+            return;
+        }
+        if (fSource != null) {
+            detach(len);
+        } else if (fOffset + fLength + len > fArray.length) {
+            grow(len);
+        }
+        char[] chars = fArray;
+        int pos = fOffset + fLength;
+        for (int i = start; i < end; i++) {
+            chars[pos++] = (char) (array[i] & 0xFF);
+        }
+        fLength += len;
+    }
+
+    /**
+     * Appends the specified region of the given sequence. If this buffer is
+     * empty then it becomes a view on the given region.
+     * 
+     * @param str the sequence to append
+     * @param start the position of the first character to append
+     * @param end the position following the last character to append
+     */
+    public void append(CharSequence str, int start, int end) {
+        int len = end - start;
+        if (len <= 0) {
+            return;
+        }
+        if (fLength == 0) {
+            fSource = str;
+            fOffset = start;
+            fLength = len;
+            return;
+        }
+        if (fSource != null) {
+            detach(len);
+        } else if (fOffset + fLength + len > fArray.length) {
+            grow(len);
+        }
+        int pos = fOffset + fLength;
+        if (str instanceof String) {
+            ((String) str).getChars(start, end, fArray, pos);
+        } else {
+            for (int i = start; i < end; i++) {
+                fArray[pos++] = str.charAt(i);
+            }
+        }
+        fLength += len;
+    }
+
+    public char charAt(int index) {
+        return fSource != null
+            ? fSource.charAt(fOffset + index)
+            : fArray[fOffset + index];
+    }
+
+    /**
+     * Returns <code>true</code> if this sequence contains the same characters
+     * as the given string.
+     * 
+     * @param str the string to compare with
+     * @return <code>true</code> if this sequence is equal to the given string
+     */
+    public boolean contentEquals(String str) {
+        int len = str.length();
+        if (len != fLength) {
+            return false;
+        }
+        if (fSource != null) {
+            for (int i = 0; i < len; i++) {
+                if (fSource.charAt(fOffset + i) != str.charAt(i)) {
+                    return false;
+                }
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                if (fArray[fOffset + i] != str.charAt(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the content of the wrapped sequence in the internal array.
+     * 
+     * @param len the number of characters which will be appended
+     */
+    private void detach(int len) {
+        CharSequence source = fSource;
+        int offset = fOffset;
+        fSource = null;
+        fOffset = 0;
+        if (fLength + len > fArray.length) {
+            grow(len);
+        }
+        for (int i = 0; i < fLength; i++) {
+            fArray[i] = source.charAt(offset + i);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this sequence contains the same characters
+     * as the given string ignoring the case.
+     * 
+     * @param str the string to compare with
+     * @return <code>true</code> if this sequence is equal to the given string
+     *         ignoring the case
+     */
+    public boolean equalsIgnoreCase(String str) {
+        int len = str.length();
+        if (len != fLength) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char a = charAt(i);
+            char b = str.charAt(i);
+            if (a != b
+                && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the position of the first character of this sequence in the
+     * given source if this object is a view on this source and
+     * <code>-1</code> otherwise.
+     */
+    int getSourceOffset(CharSequence source) {
+        if (fLength == 0) {
+            return 0;
+        }
+        return fSource == source ? fOffset : -1;
+    }
+
+    private void grow(int len) {
+        int size = Math.max(fArray.length * 2, fOffset + fLength + len);
+        char[] array = new char[size];
+        System.arraycopy(fArray, fOffset, array, 0, fLength);
+        fArray = array;
+        fOffset = 0;
+    }
+
+    public int length() {
+        return fLength;
+    }
+
+    /**
+     * Removes all characters from this sequence.
+     */
+    public void reset() {
+        fSource = null;
+        fOffset = 0;
+        fLength = 0;
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return fSource != null ? fSource
+            .subSequence(fOffset, fOffset + fLength)
+            .toString() : new String(fArray, fOffset, fLength);
+    }
+
+    /**
+     * Removes leading and trailing white spaces (all characters less or equal
+     * to the space symbol) in the same way as the {@link String#trim()}
+     * method.
+     */
+    public void trim() {
+        while (fLength > 0 && charAt(0) <= ' ') {
+            fOffset++;
+            fLength--;
+        }
+        while (fLength > 0 && charAt(fLength - 1) <= ' ') {
+            fLength--;
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.ubimix.commons.json.IJsonNumberListener;
+import org.ubimix.commons.json.JsonNumberParser;
+
+/**
+ * The common superclass of serializers transforming listener calls in binary
+ * encodings. Encoded bytes are accumulated in an internal growable array;
+ * they can be copied to an {@link OutputStream} or to a {@link ByteBuffer} or
+ * returned as a new array. Instances can be re-used after the
+ * {@link #reset()} method call.
+ * 
+ * @author kotelnikov
+ */
+public abstract class AbstractBinarySerializer
+    implements
+    IJsonNumberListener {
+
+    private byte[] fBuf = new byte[256];
+
+    private int fSize;
+
+    public AbstractBinarySerializer() {
+    }
+
+    /**
+     * Makes sure that the given number of bytes can be written without
+     * growing the internal array.
+     */
+    private void ensure(int len) {
+        if (fSize + len > fBuf.length) {
+            byte[] buf = new byte[Math.max(fBuf.length * 2, fSize + len)];
+            System.arraycopy(fBuf, 0, buf, 0, fSize);
+            fBuf = buf;
+        }
+    }
+
+    /**
+     * Returns the number of bytes encoded by this serializer.
+     */
+    public int getSize() {
+        return fSize;
+    }
+
+    /**
+     * Returns the number of bytes required to encode the given string in
+     * UTF-8.
+     */
+    protected int getUtf8Length(String str) {
+        return Utf8Encoder.getLength(str, 0, str.length());
+    }
+
+    /**
+     * Inserts the given number of bytes at the specified position; the
+     * content of inserted bytes is not defined.
+     * 
+     * @param pos the position of inserted bytes
+     * @param len the number of bytes to insert
+     */
+    protected void insert(int pos, int len) {
+        ensure(len);
+        System.arraycopy(fBuf, pos, fBuf, pos + len, fSize - pos);
+        fSize += len;
+    }
+
+    /**
+     * Converts numbers reported as text and writes them using the
+     * <code>onValue</code> methods.
+     */
+    public void onNumber(CharSequence value) {
+        JsonNumberParser parser = new JsonNumberParser();
+        switch (parser.parse(value)) {
+            case INTEGER:
+                onValue(parser.getInteger());
+                break;
+            case LONG:
+                onValue(parser.getLong());
+                break;
+            case DOUBLE:
+                onValue(parser.getDouble());
+                break;
+            default:
+                onValue(value.toString());
+                break;
+        }
+    }
+
+    /**
+     * Removes all encoded bytes, so this serializer can be used to encode a
+     * new value.
+     */
+    public void reset() {
+        fSize = 0;
+    }
+
+    /**
+     * Overwrites one byte at the specified position.
+     */
+    protected void set(int pos, int b) {
+        fBuf[pos] = (byte) b;
+    }
+
+    /**
+     * Returns a new array containing all encoded bytes.
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[fSize];
+        System.arraycopy(fBuf, 0, result, 0, fSize);
+        return result;
+    }
+
+    protected void write(int b) {
+        if (fSize == fBuf.length) {
+            ensure(1);
+        }
+        fBuf[fSize++] = (byte) b;
+    }
+
+    /**
+     * Writes the given value as two bytes in the big-endian order.
+     */
+    protected void write16(int value) {
+        ensure(2);
+        fBuf[fSize++] = (byte) (value >>> 8);
+        fBuf[fSize++] = (byte) value;
+    }
+
+    /**
+     * Writes the given value as four bytes in the big-endian order.
+     */
+    protected void write32(int value) {
+        ensure(4);
+        fBuf[fSize++] = (byte) (value >>> 24);
+        fBuf[fSize++] = (byte) (value >>> 16);
+        fBuf[fSize++] = (byte) (value >>> 8);
+        fBuf[fSize++] = (byte) value;
+    }
+
+    /**
+     * Writes the given value as eight bytes in the big-endian order.
+     */
+    protected void write64(long value) {
+        write32((int) (value >>> 32));
+        write32((int) value);
+    }
+
+    /**
+     * Copies all encoded bytes in the given buffer.
+     * 
+     * @param buf the buffer where bytes are copied
+     * @throws java.nio.BufferOverflowException if the buffer has not enough
+     *         space
+     */
+    public void writeTo(ByteBuffer buf) {
+        buf.put(fBuf, 0, fSize);
+    }
+
+    /**
+     * Writes all encoded bytes in the given stream.
+     * 
+     * @param out the output stream
+     * @throws IOException if the stream can not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(fBuf, 0, fSize);
+    }
+
+    /**
+     * Writes the given string in UTF-8. Unpaired surrogates are replaced by
+     * the U+FFFD character.
+     * 
+     * @param str the string to write
+     * @param len the UTF-8 length of the string returned by the
+     *        {@link #getUtf8Length(String)} method
+     */
+    protected void writeUtf8(String str, int len) {
+        ensure(len);
+        fSize = Utf8Encoder.encode(str, 0, str.length(), fBuf, fSize);
+    }
+
+}
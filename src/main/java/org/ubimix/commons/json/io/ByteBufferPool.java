@@ -0,0 +1,110 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bounded pool of byte buffers of the same size. Buffers bigger than the
+ * standard size can be requested too; they are allocated on demand and they
+ * are not kept by the pool. Instances of this class are thread-safe.
+ * 
+ * @author kotelnikov
+ */
+public class ByteBufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    public static final int DEFAULT_MAX_COUNT = 16;
+
+    private final int fBufferSize;
+
+    private final ByteBuffer[] fBuffers;
+
+    private int fCount;
+
+    private final boolean fDirect;
+
+    public ByteBufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_COUNT, false);
+    }
+
+    /**
+     * @param bufferSize the size of pooled buffers
+     * @param maxCount the maximal number of buffers kept by this pool
+     * @param direct if this flag is <code>true</code> then this pool
+     *        allocates direct buffers
+     */
+    public ByteBufferPool(int bufferSize, int maxCount, boolean direct) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(
+                "Buffer size should be positive");
+        }
+        fBufferSize = bufferSize;
+        fBuffers = new ByteBuffer[maxCount];
+        fDirect = direct;
+    }
+
+    /**
+     * Returns an empty buffer with the capacity equal or greater than the
+     * given one.
+     * 
+     * @param capacity the minimal capacity of the buffer
+     * @return a cleared buffer
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity <= fBufferSize) {
+            synchronized (this) {
+                if (fCount > 0) {
+                    ByteBuffer buf = fBuffers[--fCount];
+                    fBuffers[fCount] = null;
+                    return buf;
+                }
+            }
+            capacity = fBufferSize;
+        }
+        return fDirect
+            ? ByteBuffer.allocateDirect(capacity)
+            : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns the size of buffers kept by this pool.
+     */
+    public int getBufferSize() {
+        return fBufferSize;
+    }
+
+    /**
+     * Returns the given buffer to this pool. The buffer should not be used
+     * after this call. Buffers with non-standard sizes are dropped.
+     * 
+     * @param buf the buffer to release
+     */
+    public void release(ByteBuffer buf) {
+        if (buf.capacity() != fBufferSize || buf.isDirect() != fDirect) {
+            return;
+        }
+        buf.clear();
+        synchronized (this) {
+            if (fCount < fBuffers.length) {
+                fBuffers[fCount++] = buf;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,598 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import org.ubimix.commons.json.IJsonListener;
+import org.ubimix.commons.json.JsonSymbolTable;
+import org.ubimix.commons.json.TextBuffer;
+
+/**
+ * This parser decodes CBOR data items (RFC 8949) and notifies
+ * {@link IJsonListener}s in the same way as JSON parsers, so all existing
+ * builders, serializers and visitors can work with this binary encoding. CBOR
+ * values without JSON equivalents are converted as recommended by the
+ * section 6.1 of the specification:
+ * <ul>
+ * <li>byte strings are reported as base64url encoded strings without
+ * padding;</li>
+ * <li>non-finite floating point numbers and the "undefined" and other simple
+ * values are reported as <code>null</code>;</li>
+ * <li>tags are ignored except bignums (tags 2 and 3) which are reported as
+ * doubles;</li>
+ * <li>map keys which are not text strings are transformed in strings.</li>
+ * </ul>
+ * Nested arrays and maps are tracked by an explicit stack, so the depth of
+ * the data is not limited by the depth of the call stack. Malformed and
+ * truncated data items are reported by {@link IllegalArgumentException}s.
+ * 
+ * @author kotelnikov
+ */
+public class CborParser {
+
+    private static final char[] BASE64 = ("ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+        + "abcdefghijklmnopqrstuvwxyz0123456789-_").toCharArray();
+
+    /**
+     * The "break" stop code terminating indefinite-length items
+     */
+    private static final int BREAK = 0xFF;
+
+    private static final int MAJOR_ARRAY = 4;
+
+    private static final int MAJOR_BYTES = 2;
+
+    private static final int MAJOR_MAP = 5;
+
+    private static final int MAJOR_NEGATIVE = 1;
+
+    private static final int MAJOR_SIMPLE = 7;
+
+    private static final int MAJOR_TAG = 6;
+
+    private static final int MAJOR_TEXT = 3;
+
+    private static final int MAJOR_UNSIGNED = 0;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Converts the given half-precision floating point number in a double.
+     */
+    private static double toDouble(int half) {
+        int exp = (half >> 10) & 0x1F;
+        int mant = half & 0x3FF;
+        double value;
+        if (exp == 0) {
+            value = mant * Math.pow(2, -24);
+        } else if (exp != 31) {
+            value = (mant + 1024) * Math.pow(2, exp - 25);
+        } else {
+            value = mant == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    /**
+     * The additional information of the last read header
+     */
+    private int fArgument;
+
+    private ByteBuffer fBuf;
+
+    /**
+     * Buffer used to decode strings
+     */
+    private byte[] fBytes = new byte[64];
+
+    /**
+     * The number of opened arrays and maps
+     */
+    private int fDepth;
+
+    /**
+     * The buffer used to intern ASCII property names
+     */
+    private final TextBuffer fKey = new TextBuffer();
+
+    /**
+     * Types of opened containers; <code>true</code> for maps and
+     * <code>false</code> for arrays.
+     */
+    private boolean[] fMaps = new boolean[16];
+
+    /**
+     * The major type of the last read header
+     */
+    private int fMajor;
+
+    /**
+     * Names of the current properties of opened maps
+     */
+    private String[] fNames = new String[16];
+
+    /**
+     * The number of remaining items in opened containers; it is negative for
+     * containers of indefinite length.
+     */
+    private long[] fRemaining = new long[16];
+
+    private JsonSymbolTable fSymbols = new JsonSymbolTable();
+
+    /**
+     * The value of the last read header
+     */
+    private long fValue;
+
+    public CborParser() {
+    }
+
+    /**
+     * Notifies the listener about the end of a value in the current container.
+     */
+    private void endValue(IJsonListener listener) {
+        int idx = fDepth - 1;
+        if (fMaps[idx]) {
+            String name = fNames[idx];
+            fNames[idx] = null;
+            listener.endObjectProperty(name);
+        } else {
+            listener.endArrayElement();
+        }
+    }
+
+    /**
+     * Returns the table used to intern property names.
+     * 
+     * @return the table of property names or <code>null</code> if property
+     *         names are not interned
+     */
+    public JsonSymbolTable getSymbolTable() {
+        return fSymbols;
+    }
+
+    /**
+     * Parses one CBOR data item from the given array.
+     * 
+     * @param array the CBOR encoded data
+     * @param listener the listener notified about parsed elements
+     */
+    public void parse(byte[] array, IJsonListener listener) {
+        parse(array, 0, array.length, listener);
+    }
+
+    /**
+     * Parses one CBOR data item from the specified range of the given array.
+     * 
+     * @param array the CBOR encoded data
+     * @param offset the offset of the first byte to parse
+     * @param len the number of bytes to parse
+     * @param listener the listener notified about parsed elements
+     */
+    public void parse(
+        byte[] array,
+        int offset,
+        int len,
+        IJsonListener listener) {
+        parse(ByteBuffer.wrap(array, offset, len), listener);
+    }
+
+    /**
+     * Parses one CBOR data item starting from the position of the given
+     * buffer. The position of the buffer is not changed.
+     * 
+     * @param buf the buffer containing CBOR encoded data
+     * @param listener the listener notified about parsed elements
+     */
+    public void parse(ByteBuffer buf, IJsonListener listener) {
+        fBuf = buf.duplicate();
+        fBuf.order(ByteOrder.BIG_ENDIAN);
+        fDepth = 0;
+        try {
+            parseItem(listener);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("CBOR data is truncated");
+        } finally {
+            for (int i = 0; i < fDepth; i++) {
+                fNames[i] = null;
+            }
+            fBuf = null;
+        }
+    }
+
+    /**
+     * Reads the whole data item and notifies the listener.
+     */
+    private void parseItem(IJsonListener listener) {
+        while (true) {
+            if (fDepth > 0) {
+                int idx = fDepth - 1;
+                long remaining = fRemaining[idx];
+                if (remaining == 0 || (remaining < 0 && skipBreak())) {
+                    if (pop()) {
+                        listener.endObject();
+                    } else {
+                        listener.endArray();
+                    }
+                    if (fDepth == 0) {
+                        return;
+                    }
+                    endValue(listener);
+                    continue;
+                }
+                if (remaining > 0) {
+                    fRemaining[idx] = remaining - 1;
+                }
+                if (fMaps[idx]) {
+                    String name = readKey();
+                    fNames[idx] = name;
+                    listener.beginObjectProperty(name);
+                } else {
+                    listener.beginArrayElement();
+                }
+            }
+            if (readValue(listener)) {
+                // A new container is opened
+                continue;
+            }
+            if (fDepth == 0) {
+                return;
+            }
+            endValue(listener);
+        }
+    }
+
+    /**
+     * Closes the current container and returns <code>true</code> if it is a
+     * map.
+     */
+    private boolean pop() {
+        fDepth--;
+        return fMaps[fDepth];
+    }
+
+    /**
+     * Opens a new container.
+     */
+    private void push(boolean map, long size) {
+        if (fDepth == fMaps.length) {
+            int len = fDepth * 2;
+            boolean[] maps = new boolean[len];
+            System.arraycopy(fMaps, 0, maps, 0, fDepth);
+            fMaps = maps;
+            long[] remaining = new long[len];
+            System.arraycopy(fRemaining, 0, remaining, 0, fDepth);
+            fRemaining = remaining;
+            String[] names = new String[len];
+            System.arraycopy(fNames, 0, names, 0, fDepth);
+            fNames = names;
+        }
+        fMaps[fDepth] = map;
+        fRemaining[fDepth] = size;
+        fDepth++;
+    }
+
+    /**
+     * Reads the content of a byte string and returns it encoded in base64url
+     * without padding.
+     */
+    private String readBase64() {
+        int len = readBytes();
+        StringBuilder buf = new StringBuilder((len * 4 + 2) / 3);
+        for (int i = 0; i < len; i += 3) {
+            int b = (fBytes[i] & 0xFF) << 16;
+            if (i + 1 < len) {
+                b |= (fBytes[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < len) {
+                b |= fBytes[i + 2] & 0xFF;
+            }
+            buf.append(BASE64[(b >> 18) & 0x3F]);
+            buf.append(BASE64[(b >> 12) & 0x3F]);
+            if (i + 1 < len) {
+                buf.append(BASE64[(b >> 6) & 0x3F]);
+            }
+            if (i + 2 < len) {
+                buf.append(BASE64[b & 0x3F]);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Reads the content of a byte or text string with the major type of the
+     * last header in the internal byte array and returns its length. Chunks
+     * of indefinite-length strings are concatenated.
+     */
+    private int readBytes() {
+        int major = fMajor;
+        if (fArgument != 31) {
+            return readChunk(0);
+        }
+        int len = 0;
+        while (!skipBreak()) {
+            readHeader();
+            if (fMajor != major || fArgument == 31) {
+                throw new IllegalArgumentException(
+                    "Bad chunk of an indefinite-length string");
+            }
+            len = readChunk(len);
+        }
+        return len;
+    }
+
+    /**
+     * Appends a chunk with the length defined by the last header to the
+     * internal byte array starting from the given position and returns the
+     * new length of the content.
+     */
+    private int readChunk(int pos) {
+        if (fValue > Integer.MAX_VALUE - pos) {
+            throw new IllegalArgumentException("CBOR string is too long");
+        }
+        int len = (int) fValue;
+        if (len > fBuf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (pos + len > fBytes.length) {
+            byte[] bytes = new byte[Math.max(pos + len, fBytes.length * 2)];
+            System.arraycopy(fBytes, 0, bytes, 0, pos);
+            fBytes = bytes;
+        }
+        fBuf.get(fBytes, pos, len);
+        return pos + len;
+    }
+
+    /**
+     * Reads the initial byte and the argument of the next data item.
+     */
+    private void readHeader() {
+        int b = fBuf.get() & 0xFF;
+        fMajor = b >>> 5;
+        fArgument = b & 0x1F;
+        switch (fArgument) {
+            case 24:
+                fValue = fBuf.get() & 0xFF;
+                break;
+            case 25:
+                fValue = fBuf.getShort() & 0xFFFF;
+                break;
+            case 26:
+                fValue = fBuf.getInt() & 0xFFFFFFFFL;
+                break;
+            case 27:
+                fValue = fBuf.getLong();
+                break;
+            case 28:
+            case 29:
+            case 30:
+                throw new IllegalArgumentException("Bad CBOR header: " + b);
+            default:
+                fValue = fArgument;
+                break;
+        }
+    }
+
+    /**
+     * Reads the next map key and transforms it in a string.
+     */
+    private String readKey() {
+        do {
+            readHeader();
+        } while (fMajor == MAJOR_TAG);
+        switch (fMajor) {
+            case MAJOR_TEXT:
+                return readName();
+            case MAJOR_BYTES:
+                return readBase64();
+            case MAJOR_UNSIGNED:
+                return fValue >= 0
+                    ? Long.toString(fValue)
+                    : toBigInteger(fValue).toString();
+            case MAJOR_NEGATIVE:
+                return fValue >= 0
+                    ? Long.toString(-1 - fValue)
+                    : toBigInteger(fValue).not().toString();
+            case MAJOR_SIMPLE:
+                switch (fArgument) {
+                    case 20:
+                        return "false";
+                    case 21:
+                        return "true";
+                    case 25:
+                    case 26:
+                    case 27:
+                        return Double.toString(readFloat());
+                    default:
+                        return "null";
+                }
+            default:
+                throw new IllegalArgumentException(
+                    "Unsupported type of CBOR map keys: " + fMajor);
+        }
+    }
+
+    /**
+     * Returns the value of the floating point number defined by the last
+     * header.
+     */
+    private double readFloat() {
+        switch (fArgument) {
+            case 25:
+                return toDouble((int) fValue);
+            case 26:
+                return Float.intBitsToFloat((int) fValue);
+            default:
+                return Double.longBitsToDouble(fValue);
+        }
+    }
+
+    /**
+     * Reads a text string used as a property name. Short ASCII names are
+     * interned.
+     */
+    private String readName() {
+        int len = readBytes();
+        if (fSymbols == null) {
+            return new String(fBytes, 0, len, UTF8);
+        }
+        fKey.reset();
+        for (int i = 0; i < len; i++) {
+            byte b = fBytes[i];
+            if (b < 0) {
+                return new String(fBytes, 0, len, UTF8);
+            }
+            fKey.append((char) b);
+        }
+        return fSymbols.intern(fKey);
+    }
+
+    /**
+     * Reads the next value and notifies the listener. If the value is an
+     * array or a map then it is opened and this method returns
+     * <code>true</code>.
+     */
+    private boolean readValue(IJsonListener listener) {
+        readHeader();
+        long tag = -1;
+        while (fMajor == MAJOR_TAG) {
+            tag = fValue;
+            readHeader();
+        }
+        long value = fValue;
+        switch (fMajor) {
+            case MAJOR_UNSIGNED:
+                if (value >= 0) {
+                    reportNumber(value, listener);
+                } else {
+                    listener.onValue(toBigInteger(value).doubleValue());
+                }
+                break;
+            case MAJOR_NEGATIVE:
+                if (value >= 0) {
+                    reportNumber(-1 - value, listener);
+                } else {
+                    listener.onValue(toBigInteger(value).not().doubleValue());
+                }
+                break;
+            case MAJOR_BYTES:
+                if (tag == 2 || tag == 3) {
+                    int len = readBytes();
+                    byte[] bytes = new byte[len + 1];
+                    System.arraycopy(fBytes, 0, bytes, 1, len);
+                    BigInteger number = new BigInteger(bytes);
+                    if (tag == 3) {
+                        number = number.not();
+                    }
+                    listener.onValue(number.doubleValue());
+                } else {
+                    listener.onValue(readBase64());
+                }
+                break;
+            case MAJOR_TEXT:
+                int len = readBytes();
+                listener.onValue(new String(fBytes, 0, len, UTF8));
+                break;
+            case MAJOR_ARRAY:
+                listener.beginArray();
+                push(false, fArgument == 31 ? -1 : value);
+                return true;
+            case MAJOR_MAP:
+                listener.beginObject();
+                push(true, fArgument == 31 ? -1 : value);
+                return true;
+            default:
+                switch (fArgument) {
+                    case 20:
+                        listener.onValue(false);
+                        break;
+                    case 21:
+                        listener.onValue(true);
+                        break;
+                    case 25:
+                    case 26:
+                    case 27:
+                        double d = readFloat();
+                        if (Double.isNaN(d) || Double.isInfinite(d)) {
+                            listener.onValue((String) null);
+                        } else {
+                            listener.onValue(d);
+                        }
+                        break;
+                    case 31:
+                        throw new IllegalArgumentException(
+                            "Unexpected CBOR break code");
+                    default:
+                        listener.onValue((String) null);
+                        break;
+                }
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Reports the given integer number as an integer or as a long value.
+     */
+    private void reportNumber(long value, IJsonListener listener) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            listener.onValue((int) value);
+        } else {
+            listener.onValue(value);
+        }
+    }
+
+    /**
+     * Sets a new table used to intern property names.
+     * 
+     * @param symbols the table of property names; if it is <code>null</code>
+     *        then property names are not interned
+     */
+    public void setSymbolTable(JsonSymbolTable symbols) {
+        fSymbols = symbols;
+    }
+
+    /**
+     * Consumes the "break" stop code if it is the next byte and returns
+     * <code>true</code> in this case.
+     */
+    private boolean skipBreak() {
+        int pos = fBuf.position();
+        if (pos >= fBuf.limit()) {
+            throw new BufferUnderflowException();
+        }
+        if ((fBuf.get(pos) & 0xFF) != BREAK) {
+            return false;
+        }
+        fBuf.position(pos + 1);
+        return true;
+    }
+
+    /**
+     * Returns the unsigned value of the given 64-bit argument with the
+     * highest bit set (a negative long value).
+     */
+    private BigInteger toBigInteger(long value) {
+        return BigInteger.valueOf(value & Long.MAX_VALUE).setBit(63);
+    }
+
+}
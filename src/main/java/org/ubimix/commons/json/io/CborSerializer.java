@@ -0,0 +1,137 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+/**
+ * This serializer transforms listener calls in CBOR (RFC 8949). Objects and
+ * arrays are written as indefinite-length maps and arrays, so their sizes are
+ * not required in advance and bytes are never moved. Integer numbers and
+ * strings use the shortest possible headers; doubles are written with single
+ * precision when this does not change their values.
+ * 
+ * @author kotelnikov
+ */
+public class CborSerializer extends AbstractBinarySerializer {
+
+    private static final int BREAK = 0xFF;
+
+    private static final int MAJOR_ARRAY = 4 << 5;
+
+    private static final int MAJOR_MAP = 5 << 5;
+
+    private static final int MAJOR_NEGATIVE = 1 << 5;
+
+    private static final int MAJOR_TEXT = 3 << 5;
+
+    private static final int MAJOR_UNSIGNED = 0;
+
+    public CborSerializer() {
+    }
+
+    public void beginArray() {
+        write(MAJOR_ARRAY | 31);
+    }
+
+    public void beginArrayElement() {
+    }
+
+    public void beginObject() {
+        write(MAJOR_MAP | 31);
+    }
+
+    public void beginObjectProperty(String property) {
+        writeText(property);
+    }
+
+    public void endArray() {
+        write(BREAK);
+    }
+
+    public void endArrayElement() {
+    }
+
+    public void endObject() {
+        write(BREAK);
+    }
+
+    public void endObjectProperty(String property) {
+    }
+
+    public void onValue(boolean value) {
+        write(value ? 0xF5 : 0xF4);
+    }
+
+    public void onValue(double value) {
+        float f = (float) value;
+        if (f == value || Double.isNaN(value)) {
+            write(0xFA);
+            write32(Float.floatToIntBits(f));
+        } else {
+            write(0xFB);
+            write64(Double.doubleToLongBits(value));
+        }
+    }
+
+    public void onValue(int value) {
+        onValue((long) value);
+    }
+
+    public void onValue(long value) {
+        if (value >= 0) {
+            writeHeader(MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    public void onValue(String value) {
+        if (value == null) {
+            write(0xF6);
+        } else {
+            writeText(value);
+        }
+    }
+
+    /**
+     * Writes the initial byte with the given major type and the shortest
+     * encoding of the given argument.
+     */
+    private void writeHeader(int major, long value) {
+        if (value < 24) {
+            write(major | (int) value);
+        } else if (value <= 0xFF) {
+            write(major | 24);
+            write((int) value);
+        } else if (value <= 0xFFFF) {
+            write(major | 25);
+            write16((int) value);
+        } else if (value <= 0xFFFFFFFFL) {
+            write(major | 26);
+            write32((int) value);
+        } else {
+            write(major | 27);
+            write64(value);
+        }
+    }
+
+    private void writeText(String str) {
+        int len = getUtf8Length(str);
+        writeHeader(MAJOR_TEXT, len);
+        writeUtf8(str, len);
+    }
+
+}
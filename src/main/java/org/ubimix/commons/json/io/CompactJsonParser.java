@@ -0,0 +1,459 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.ubimix.commons.json.IJsonAccessor;
+import org.ubimix.commons.json.IJsonListener;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonValue;
+
+/**
+ * This parser reads documents stored in the compact binary format written by
+ * the {@link CompactJsonSerializer}. It can notify listeners about the
+ * content of documents or rebuild the original objects and arrays. Property
+ * names are decoded only once for each document; nested arrays and objects
+ * are tracked by an explicit stack. Malformed and truncated data are
+ * reported by {@link IllegalArgumentException}s.
+ * 
+ * @author kotelnikov
+ */
+public class CompactJsonParser {
+
+    /**
+     * The maximal size of the buffer used to decode ASCII strings; longer
+     * strings are decoded directly from the array.
+     */
+    private static final int MAX_CHARS = 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final IJsonAccessor fAccessor;
+
+    private byte[] fBuf;
+
+    /**
+     * Buffer used to decode ASCII strings
+     */
+    private char[] fChars = new char[64];
+
+    /**
+     * Types of opened containers; <code>true</code> for objects and
+     * <code>false</code> for arrays.
+     */
+    private boolean[] fContainers = new boolean[16];
+
+    /**
+     * The number of opened containers
+     */
+    private int fDepth;
+
+    /**
+     * The dictionary of property names of the current document
+     */
+    private String[] fDictionary = new String[16];
+
+    private int fDictionarySize;
+
+    private int fLimit;
+
+    /**
+     * Names of the current properties of opened objects
+     */
+    private String[] fNames = new String[16];
+
+    private int fPos;
+
+    public CompactJsonParser() {
+        this(JsonValue.getAccessorInstance());
+    }
+
+    /**
+     * @param accessor the accessor used to create objects and arrays
+     */
+    public CompactJsonParser(IJsonAccessor accessor) {
+        fAccessor = accessor;
+    }
+
+    /**
+     * Notifies the listener about the end of a value in the current container.
+     */
+    private void endValue(IJsonListener listener) {
+        int idx = fDepth - 1;
+        if (fContainers[idx]) {
+            String name = fNames[idx];
+            fNames[idx] = null;
+            listener.endObjectProperty(name);
+        } else {
+            listener.endArrayElement();
+        }
+    }
+
+    /**
+     * Decodes the given array and returns the stored value. Objects and
+     * arrays are created by the accessor of this parser.
+     * 
+     * @param array the encoded document
+     * @return the decoded value
+     */
+    public Object parse(byte[] array) {
+        return parse(array, 0, array.length);
+    }
+
+    /**
+     * Decodes the specified range of the given array and returns the stored
+     * value. Objects and arrays are created by the accessor of this parser.
+     * 
+     * @param array the encoded document
+     * @param offset the offset of the first byte of the document
+     * @param len the length of the document
+     * @return the decoded value
+     */
+    public Object parse(byte[] array, int offset, int len) {
+        start(array, offset, len);
+        try {
+            int tag = readByte();
+            if (tag == CompactJsonSerializer.TAG_ARRAY
+                || tag == CompactJsonSerializer.TAG_OBJECT) {
+                fPos--;
+                JsonObjectBuilder builder = new JsonObjectBuilder(fAccessor);
+                parseValue(builder);
+                return builder.getTop();
+            }
+            switch (tag) {
+                case CompactJsonSerializer.TAG_NULL:
+                    return null;
+                case CompactJsonSerializer.TAG_FALSE:
+                    return Boolean.FALSE;
+                case CompactJsonSerializer.TAG_TRUE:
+                    return Boolean.TRUE;
+                case CompactJsonSerializer.TAG_INTEGER:
+                    return Integer.valueOf(readInteger());
+                case CompactJsonSerializer.TAG_LONG:
+                    return Long.valueOf(readLong());
+                case CompactJsonSerializer.TAG_DOUBLE:
+                    return Double.valueOf(readDouble());
+                case CompactJsonSerializer.TAG_STRING:
+                    return readString();
+                default:
+                    if (tag >= CompactJsonSerializer.TAG_SMALL_INTEGER) {
+                        return Integer.valueOf(tag
+                            - CompactJsonSerializer.TAG_SMALL_INTEGER);
+                    }
+                    throw new IllegalArgumentException("Bad tag: " + tag);
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Decodes the specified range of the given array and notifies the
+     * listener about the content of the document.
+     * 
+     * @param array the encoded document
+     * @param offset the offset of the first byte of the document
+     * @param len the length of the document
+     * @param listener the listener to notify
+     */
+    public void parse(
+        byte[] array,
+        int offset,
+        int len,
+        IJsonListener listener) {
+        start(array, offset, len);
+        try {
+            parseValue(listener);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Decodes the given array and notifies the listener about the content of
+     * the document.
+     * 
+     * @param array the encoded document
+     * @param listener the listener to notify
+     */
+    public void parse(byte[] array, IJsonListener listener) {
+        parse(array, 0, array.length, listener);
+    }
+
+    /**
+     * Decodes the document between the position and the limit of the given
+     * buffer and notifies the listener about its content. The position of
+     * the buffer is not changed.
+     * 
+     * @param buf the buffer containing the encoded document
+     * @param listener the listener to notify
+     */
+    public void parse(ByteBuffer buf, IJsonListener listener) {
+        if (buf.hasArray()) {
+            parse(
+                buf.array(),
+                buf.arrayOffset() + buf.position(),
+                buf.remaining(),
+                listener);
+        } else {
+            byte[] array = new byte[buf.remaining()];
+            buf.duplicate().get(array);
+            parse(array, listener);
+        }
+    }
+
+    /**
+     * Reads one value with all its content and notifies the listener.
+     */
+    private void parseValue(IJsonListener listener) {
+        while (true) {
+            if (fDepth > 0) {
+                int idx = fDepth - 1;
+                if (fContainers[idx]) {
+                    String name = readName();
+                    if (name == null) {
+                        fDepth--;
+                        listener.endObject();
+                        if (fDepth == 0) {
+                            return;
+                        }
+                        endValue(listener);
+                        continue;
+                    }
+                    fNames[idx] = name;
+                    listener.beginObjectProperty(name);
+                } else {
+                    if (readByte() == CompactJsonSerializer.TAG_END) {
+                        fDepth--;
+                        listener.endArray();
+                        if (fDepth == 0) {
+                            return;
+                        }
+                        endValue(listener);
+                        continue;
+                    }
+                    fPos--;
+                    listener.beginArrayElement();
+                }
+            }
+            int tag = readByte();
+            switch (tag) {
+                case CompactJsonSerializer.TAG_ARRAY:
+                    listener.beginArray();
+                    push(false);
+                    continue;
+                case CompactJsonSerializer.TAG_OBJECT:
+                    listener.beginObject();
+                    push(true);
+                    continue;
+                case CompactJsonSerializer.TAG_NULL:
+                    listener.onValue((String) null);
+                    break;
+                case CompactJsonSerializer.TAG_FALSE:
+                    listener.onValue(false);
+                    break;
+                case CompactJsonSerializer.TAG_TRUE:
+                    listener.onValue(true);
+                    break;
+                case CompactJsonSerializer.TAG_INTEGER:
+                    listener.onValue(readInteger());
+                    break;
+                case CompactJsonSerializer.TAG_LONG:
+                    listener.onValue(readLong());
+                    break;
+                case CompactJsonSerializer.TAG_DOUBLE:
+                    listener.onValue(readDouble());
+                    break;
+                case CompactJsonSerializer.TAG_STRING:
+                    listener.onValue(readString());
+                    break;
+                default:
+                    if (tag < CompactJsonSerializer.TAG_SMALL_INTEGER) {
+                        throw new IllegalArgumentException("Bad tag: " + tag);
+                    }
+                    listener.onValue(tag
+                        - CompactJsonSerializer.TAG_SMALL_INTEGER);
+                    break;
+            }
+            if (fDepth == 0) {
+                return;
+            }
+            endValue(listener);
+        }
+    }
+
+    /**
+     * Opens a new container.
+     */
+    private void push(boolean object) {
+        if (fDepth == fContainers.length) {
+            int len = fDepth * 2;
+            boolean[] containers = new boolean[len];
+            System.arraycopy(fContainers, 0, containers, 0, fDepth);
+            fContainers = containers;
+            String[] names = new String[len];
+            System.arraycopy(fNames, 0, names, 0, fDepth);
+            fNames = names;
+        }
+        fContainers[fDepth++] = object;
+    }
+
+    private int readByte() {
+        if (fPos >= fLimit) {
+            throw new IllegalArgumentException("The document is truncated");
+        }
+        return fBuf[fPos++] & 0xFF;
+    }
+
+    private double readDouble() {
+        if (fPos + 8 > fLimit) {
+            throw new IllegalArgumentException("The document is truncated");
+        }
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (fBuf[fPos++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private int readInteger() {
+        long value = readVarint();
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    /**
+     * Returns the length of the next string and checks that all its bytes
+     * are available.
+     */
+    private int readLength(long len) {
+        if (len > fLimit - fPos) {
+            throw new IllegalArgumentException("The document is truncated");
+        }
+        return (int) len;
+    }
+
+    private long readLong() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads the next property name or returns <code>null</code> if the
+     * current object is finished.
+     */
+    private String readName() {
+        long header = readVarint();
+        if (header == 0) {
+            return null;
+        }
+        if ((header & 1) == 0) {
+            long pos = (header >>> 1) - 1;
+            if (pos >= fDictionarySize) {
+                throw new IllegalArgumentException("Bad name reference: "
+                    + pos);
+            }
+            return fDictionary[(int) pos];
+        }
+        String name = readText(readLength(header >>> 1));
+        if (fDictionarySize == fDictionary.length) {
+            String[] dictionary = new String[fDictionarySize * 2];
+            System.arraycopy(fDictionary, 0, dictionary, 0, fDictionarySize);
+            fDictionary = dictionary;
+        }
+        fDictionary[fDictionarySize++] = name;
+        return name;
+    }
+
+    private String readString() {
+        return readText(readLength(readVarint()));
+    }
+
+    /**
+     * Decodes the given number of UTF-8 bytes starting from the current
+     * position.
+     */
+    private String readText(int len) {
+        int pos = fPos;
+        fPos += len;
+        if (len > MAX_CHARS) {
+            return new String(fBuf, pos, len, UTF8);
+        }
+        if (len > fChars.length) {
+            fChars = new char[Math.min(
+                MAX_CHARS,
+                Math.max(len, fChars.length * 2))];
+        }
+        char[] chars = fChars;
+        byte[] buf = fBuf;
+        for (int i = 0; i < len; i++) {
+            byte b = buf[pos + i];
+            if (b < 0) {
+                return new String(buf, pos, len, UTF8);
+            }
+            chars[i] = (char) b;
+        }
+        return new String(chars, 0, len);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer.
+     */
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Bad variable-length integer");
+    }
+
+    /**
+     * Prepares the parser to decode the given document.
+     */
+    private void start(byte[] array, int offset, int len) {
+        fBuf = array;
+        fPos = offset;
+        fLimit = offset + len;
+        fDepth = 0;
+        fDictionarySize = 0;
+        int version = readByte();
+        if (version != CompactJsonSerializer.VERSION) {
+            throw new IllegalArgumentException("Unsupported version: "
+                + version);
+        }
+    }
+
+    /**
+     * Releases references to the decoded document.
+     */
+    private void stop() {
+        for (int i = 0; i < fDictionarySize; i++) {
+            fDictionary[i] = null;
+        }
+        for (int i = 0; i < fDepth; i++) {
+            fNames[i] = null;
+        }
+        fDictionarySize = 0;
+        fBuf = null;
+    }
+
+}
@@ -0,0 +1,178 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This serializer transforms listener calls in a compact binary format used
+ * to store parsed documents; this format is read by the
+ * {@link CompactJsonParser}. The format keeps all JSON types (integer, long
+ * and double numbers are not mixed) and is designed for fast decoding:
+ * <ul>
+ * <li>the content starts with the {@link #VERSION} byte;</li>
+ * <li>each value starts with a one-byte tag; integers between 0 and 127 are
+ * stored directly in the tag;</li>
+ * <li>integer and long numbers are stored as zig-zag encoded variable-length
+ * integers ("varints"), doubles as 8 bytes in the big-endian order;</li>
+ * <li>strings are stored as varint lengths followed by UTF-8 bytes;</li>
+ * <li>arrays are terminated by the {@link #TAG_END} tag;</li>
+ * <li>each property name is preceded by a varint header; names are stored
+ * once and then referenced by their positions in the dictionary of names of
+ * the document, so repeated names are not copied and not decoded again. The
+ * zero header terminates objects.</li>
+ * </ul>
+ * 
+ * @author kotelnikov
+ */
+public class CompactJsonSerializer extends AbstractBinarySerializer {
+
+    static final int TAG_ARRAY = 7;
+
+    static final int TAG_DOUBLE = 5;
+
+    static final int TAG_END = 9;
+
+    static final int TAG_FALSE = 1;
+
+    static final int TAG_INTEGER = 3;
+
+    static final int TAG_LONG = 4;
+
+    static final int TAG_NULL = 0;
+
+    static final int TAG_OBJECT = 8;
+
+    /**
+     * Tags greater or equal to this value contain small integers
+     */
+    static final int TAG_SMALL_INTEGER = 0x80;
+
+    static final int TAG_STRING = 6;
+
+    static final int TAG_TRUE = 2;
+
+    /**
+     * The version of the format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Positions of property names in the dictionary
+     */
+    private final Map<String, Integer> fNames = new HashMap<String, Integer>();
+
+    public CompactJsonSerializer() {
+        write(VERSION);
+    }
+
+    public void beginArray() {
+        write(TAG_ARRAY);
+    }
+
+    public void beginArrayElement() {
+    }
+
+    public void beginObject() {
+        write(TAG_OBJECT);
+    }
+
+    public void beginObjectProperty(String property) {
+        Integer pos = fNames.get(property);
+        if (pos != null) {
+            writeVarint((pos.longValue() + 1) << 1);
+        } else {
+            fNames.put(property, fNames.size());
+            int len = getUtf8Length(property);
+            writeVarint(((long) len << 1) | 1);
+            writeUtf8(property, len);
+        }
+    }
+
+    public void endArray() {
+        write(TAG_END);
+    }
+
+    public void endArrayElement() {
+    }
+
+    public void endObject() {
+        write(0);
+    }
+
+    public void endObjectProperty(String property) {
+    }
+
+    public void onValue(boolean value) {
+        write(value ? TAG_TRUE : TAG_FALSE);
+    }
+
+    public void onValue(double value) {
+        write(TAG_DOUBLE);
+        write64(Double.doubleToLongBits(value));
+    }
+
+    public void onValue(int value) {
+        if (value >= 0 && value < 0x80) {
+            write(TAG_SMALL_INTEGER | value);
+        } else {
+            write(TAG_INTEGER);
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+    }
+
+    public void onValue(long value) {
+        write(TAG_LONG);
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    public void onValue(String value) {
+        if (value == null) {
+            write(TAG_NULL);
+        } else {
+            write(TAG_STRING);
+            int len = getUtf8Length(value);
+            writeVarint(len);
+            writeUtf8(value, len);
+        }
+    }
+
+    /**
+     * Removes all encoded bytes and the dictionary of property names.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        fNames.clear();
+        write(VERSION);
+    }
+
+    /**
+     * Writes the given value as an unsigned variable-length integer; each
+     * byte contains 7 bits of the value and the high bit is set in all bytes
+     * except the last one.
+     */
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+}
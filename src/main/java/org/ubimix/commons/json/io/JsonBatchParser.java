@@ -0,0 +1,350 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ubimix.commons.json.IJsonAccessor;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonValue;
+
+/**
+ * This class parses batches of small documents in parallel using the given
+ * {@link Executor}. Documents can be given as {@link CharSequence}s or as
+ * UTF-8 encoded byte arrays. A batch is processed by a limited number of
+ * workers; each worker has its own parsers and builder re-used for all
+ * documents it takes and workers take documents one by one from the common
+ * queue, so big and small documents are evenly distributed between threads.
+ * Any executor can be used: thread pools, fork-join pools or executors
+ * starting a new (virtual) thread for each task.
+ * 
+ * @author kotelnikov
+ */
+public class JsonBatchParser {
+
+    /**
+     * The result of one document. It is completed by workers.
+     */
+    private static class Result implements Future<Object> {
+
+        private static final int CANCELLED = 3;
+
+        private static final int DONE = 1;
+
+        private static final int FAILED = 2;
+
+        private static final int PENDING = 0;
+
+        private Throwable fError;
+
+        private int fState = PENDING;
+
+        private Object fValue;
+
+        public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+            return finish(CANCELLED, null, null);
+        }
+
+        /**
+         * Sets the final state of this result if it is not done yet.
+         */
+        private synchronized boolean finish(
+            int state,
+            Object value,
+            Throwable error) {
+            if (fState != PENDING) {
+                return false;
+            }
+            fState = state;
+            fValue = value;
+            fError = error;
+            notifyAll();
+            return true;
+        }
+
+        public synchronized Object get()
+            throws InterruptedException,
+            ExecutionException {
+            while (fState == PENDING) {
+                wait();
+            }
+            return getValue();
+        }
+
+        public synchronized Object get(long timeout, TimeUnit unit)
+            throws InterruptedException,
+            ExecutionException,
+            TimeoutException {
+            long end = System.nanoTime() + unit.toNanos(timeout);
+            while (fState == PENDING) {
+                long delay = end - System.nanoTime();
+                if (delay <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, delay);
+            }
+            return getValue();
+        }
+
+        private Object getValue() throws ExecutionException {
+            switch (fState) {
+                case FAILED:
+                    throw new ExecutionException(fError);
+                case CANCELLED:
+                    throw new CancellationException();
+                default:
+                    return fValue;
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return fState == CANCELLED;
+        }
+
+        public synchronized boolean isDone() {
+            return fState != PENDING;
+        }
+
+        public void set(Object value) {
+            finish(DONE, value, null);
+        }
+
+        public void setException(Throwable t) {
+            finish(FAILED, null, t);
+        }
+
+    }
+
+    /**
+     * Parses documents from the queue until it is empty.
+     */
+    private class Worker implements Runnable {
+
+        private final List<?> fDocuments;
+
+        private final AtomicInteger fNext;
+
+        private final List<Result> fResults;
+
+        public Worker(
+            List<?> documents,
+            List<Result> results,
+            AtomicInteger next) {
+            fDocuments = documents;
+            fResults = results;
+            fNext = next;
+        }
+
+        public void run() {
+            JsonParser parser = null;
+            Utf8JsonParser utf8Parser = null;
+            JsonObjectBuilder builder = new JsonObjectBuilder(fAccessor);
+            int size = fDocuments.size();
+            int pos;
+            while ((pos = fNext.getAndIncrement()) < size) {
+                Result result = fResults.get(pos);
+                if (result.isDone()) {
+                    continue;
+                }
+                try {
+                    Object document = fDocuments.get(pos);
+                    builder.reset();
+                    if (document instanceof CharSequence) {
+                        if (parser == null) {
+                            parser = new JsonParser();
+                        }
+                        parser.parse((CharSequence) document, builder);
+                    } else if (document instanceof byte[]) {
+                        if (utf8Parser == null) {
+                            utf8Parser = new Utf8JsonParser();
+                        }
+                        utf8Parser.parse((byte[]) document, builder);
+                    } else {
+                        throw new IllegalArgumentException(
+                            "Unsupported document type: " + document);
+                    }
+                    result.set(builder.getTop());
+                } catch (Throwable t) {
+                    result.setException(t);
+                    // Parsers are in an unknown state now
+                    parser = null;
+                    utf8Parser = null;
+                    builder = new JsonObjectBuilder(fAccessor);
+                }
+            }
+        }
+    }
+
+    private final IJsonAccessor fAccessor;
+
+    private final Executor fExecutor;
+
+    private final int fWorkerCount;
+
+    /**
+     * @param executor the executor running workers
+     */
+    public JsonBatchParser(Executor executor) {
+        this(executor, JsonValue.getAccessorInstance(), Runtime
+            .getRuntime()
+            .availableProcessors());
+    }
+
+    /**
+     * @param executor the executor running workers
+     * @param accessor the accessor used to create objects and arrays
+     * @param workerCount the maximal number of workers used for one batch
+     */
+    public JsonBatchParser(
+        Executor executor,
+        IJsonAccessor accessor,
+        int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException(
+                "The number of workers should be positive");
+        }
+        fExecutor = executor;
+        fAccessor = accessor;
+        fWorkerCount = workerCount;
+    }
+
+    /**
+     * Cancels all given tasks.
+     */
+    private void cancel(List<Future<Object>> tasks) {
+        for (Future<Object> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Creates pending results for the given number of documents.
+     */
+    private List<Result> newResults(int size) {
+        List<Result> results = new ArrayList<Result>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(new Result());
+        }
+        return results;
+    }
+
+    /**
+     * Parses all given documents and returns the resulting objects or arrays
+     * in the same order. The calling thread works as one of workers and then
+     * waits for documents taken by other workers, so this method can be
+     * called from tasks running on the same executor. If a document can not
+     * be parsed then the remaining documents are cancelled and the error is
+     * re-thrown.
+     * 
+     * @param documents a list of {@link CharSequence}s or UTF-8 encoded byte
+     *        arrays
+     * @return a list of root elements of parsed documents; it contains
+     *         <code>null</code> for documents without objects or arrays
+     * @throws InterruptedException if the calling thread was interrupted while
+     *         waiting for the results
+     */
+    public List<Object> parseAll(List<?> documents)
+        throws InterruptedException {
+        int size = documents.size();
+        List<Result> results = newResults(size);
+        AtomicInteger next = new AtomicInteger();
+        startWorkers(documents, results, next, fWorkerCount - 1);
+        new Worker(documents, results, next).run();
+        List<Future<Object>> tasks = new ArrayList<Future<Object>>(results);
+        List<Object> result = new ArrayList<Object>(size);
+        try {
+            for (Future<Object> task : tasks) {
+                result.add(task.get());
+            }
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Starts the given number of workers on the executor; workers are not
+     * started for an empty queue. If the executor rejects a worker then no
+     * more workers are submitted: the queue is shared, so documents are
+     * parsed by already started workers.
+     * 
+     * @return the number of started workers
+     */
+    private int startWorkers(
+        List<?> documents,
+        List<Result> results,
+        AtomicInteger next,
+        int count) {
+        count = Math.min(count, documents.size());
+        for (int i = 0; i < count; i++) {
+            try {
+                fExecutor.execute(new Worker(documents, results, next));
+            } catch (RejectedExecutionException e) {
+                return i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Starts parsing of the given documents and returns immediately. Each
+     * returned future corresponds to the document in the same position and
+     * is completed as soon as this document is parsed. Cancelled documents
+     * are not parsed. If the executor does not accept any worker then the
+     * documents are parsed in the calling thread before this method returns.
+     * 
+     * @param documents a list of {@link CharSequence}s or UTF-8 encoded byte
+     *        arrays; this list should not be changed until all documents are
+     *        parsed
+     * @return a list of futures returning root elements of documents
+     */
+    public List<Future<Object>> submitAll(List<?> documents) {
+        int size = documents.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<Result> results = newResults(size);
+        AtomicInteger next = new AtomicInteger();
+        if (startWorkers(documents, results, next, fWorkerCount) == 0) {
+            new Worker(documents, results, next).run();
+        }
+        return new ArrayList<Future<Object>>(results);
+    }
+
+}
@@ -0,0 +1,339 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.nio.ByteBuffer;
+
+import org.ubimix.commons.json.AbstractJsonParser;
+import org.ubimix.commons.json.IJsonListener;
+import org.ubimix.commons.json.JsonToken;
+
+/**
+ * This is a non-blocking parser for UTF-8 encoded JSON arriving by chunks (for
+ * example from a non-blocking socket channel). Each call of the
+ * {@link #feed(ByteBuffer)} method notifies the listener about all elements
+ * which can be read from the data received so far; the nesting of objects and
+ * arrays is kept between calls. When a chunk ends in the middle of a string,
+ * of a non-quoted value or of a skipped value, the characters already read
+ * and the scan state are kept and the token is continued from the same
+ * position after the next chunk, so long tokens are read only once. Other
+ * (short) tokens interrupted by the end of a chunk are read again from their
+ * beginning. The {@link #endOfInput()} method should be called when there is
+ * no more data.
+ * 
+ * <pre>
+ * JsonFeedParser parser = new JsonFeedParser(listener);
+ * while (channel.read(buf) &gt;= 0) {
+ *     buf.flip();
+ *     parser.feed(buf);
+ *     buf.clear();
+ * }
+ * parser.endOfInput();
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class JsonFeedParser extends AbstractJsonParser {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    private byte[] fBuf;
+
+    /**
+     * Code point of the decoded multi-byte sequence
+     */
+    private int fDecodedCode;
+
+    /**
+     * The length of the decoded multi-byte sequence
+     */
+    private int fDecodedLength;
+
+    /**
+     * The position of the decoded multi-byte sequence
+     */
+    private int fDecodedPos = -1;
+
+    /**
+     * This flag is <code>true</code> when all data were received.
+     */
+    private boolean fEndOfInput;
+
+    /**
+     * This flag is <code>true</code> when the root element was finished.
+     */
+    private boolean fFinished;
+
+    private int fLimit;
+
+    private IJsonListener fListener;
+
+    /**
+     * This flag is <code>true</code> when the current character is the low
+     * surrogate of a supplementary code point.
+     */
+    private boolean fLow;
+
+    private int fPos;
+
+    /**
+     * This flag is set when the parser tries to read characters which are not
+     * received yet.
+     */
+    private boolean fStarved;
+
+    /**
+     * @param listener the listener notified about parsed JSON elements
+     */
+    public JsonFeedParser(IJsonListener listener) {
+        this(listener, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param listener the listener notified about parsed JSON elements
+     * @param bufferSize the initial size of the internal buffer; the buffer
+     *        grows when a token does not fit in it
+     */
+    public JsonFeedParser(IJsonListener listener, int bufferSize) {
+        fBuf = new byte[Math.max(bufferSize, 16)];
+        reset(listener);
+    }
+
+    /**
+     * Decodes the multi-byte sequence starting at the current position and
+     * returns <code>false</code> if the sequence is not received completely.
+     */
+    private boolean decode() {
+        if (fDecodedPos == fPos) {
+            return true;
+        }
+        int b = fBuf[fPos] & 0xFF;
+        int len;
+        int code;
+        int min;
+        if ((b & 0xE0) == 0xC0) {
+            len = 2;
+            code = b & 0x1F;
+            min = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            len = 3;
+            code = b & 0x0F;
+            min = 0x800;
+        } else if ((b & 0xF8) == 0xF0) {
+            len = 4;
+            code = b & 0x07;
+            min = 0x10000;
+        } else {
+            len = 1;
+            code = -1;
+            min = 0;
+        }
+        if (fPos + len > fLimit) {
+            if (!fEndOfInput) {
+                fStarved = true;
+                return false;
+            }
+            len = 1;
+            code = -1;
+        }
+        for (int i = 1; i < len; i++) {
+            int c = fBuf[fPos + i] & 0xFF;
+            if ((c & 0xC0) != 0x80) {
+                // Skip only the leading byte of a broken sequence
+                len = 1;
+                code = -1;
+                break;
+            }
+            code = (code << 6) | (c & 0x3F);
+        }
+        if (code < min
+            || code > Character.MAX_CODE_POINT
+            || (code >= Character.MIN_SURROGATE
+                && code <= Character.MAX_SURROGATE)) {
+            code = REPLACEMENT_CHAR;
+        }
+        fDecodedPos = fPos;
+        fDecodedCode = code;
+        fDecodedLength = len;
+        return true;
+    }
+
+    /**
+     * Notifies this parser that there is no more data. All opened objects and
+     * arrays are closed and the listener is notified about remaining elements.
+     */
+    public void endOfInput() {
+        fEndOfInput = true;
+        run();
+    }
+
+    /**
+     * Appends the specified bytes to the data received so far and notifies
+     * the listener about all elements which can be read.
+     * 
+     * @param array the array containing the next chunk of data
+     * @param offset the offset of the first byte of the chunk
+     * @param len the number of bytes in the chunk
+     */
+    public void feed(byte[] array, int offset, int len) {
+        feed(ByteBuffer.wrap(array, offset, len));
+    }
+
+    /**
+     * Appends all remaining bytes of the given buffer to the data received so
+     * far and notifies the listener about all elements which can be read. The
+     * position of the buffer is moved to its limit.
+     * 
+     * @param data the buffer containing the next chunk of data
+     */
+    public void feed(ByteBuffer data) {
+        if (fEndOfInput) {
+            throw new IllegalStateException("The input is already finished.");
+        }
+        int len = data.remaining();
+        if (fFinished || len == 0) {
+            data.position(data.limit());
+            return;
+        }
+        int available = fLimit - fPos;
+        if (fPos > 0) {
+            // Bytes of tokens already reported are not required anymore
+            System.arraycopy(fBuf, fPos, fBuf, 0, available);
+            fLimit = available;
+            fPos = 0;
+            fDecodedPos = -1;
+        }
+        if (available + len > fBuf.length) {
+            int size = Math.max(fBuf.length * 2, available + len);
+            byte[] buf = new byte[size];
+            System.arraycopy(fBuf, 0, buf, 0, available);
+            fBuf = buf;
+        }
+        data.get(fBuf, fLimit, len);
+        fLimit += len;
+        run();
+    }
+
+    @Override
+    protected char getChar() {
+        if (fPos >= fLimit) {
+            fStarved = !fEndOfInput;
+            return 0;
+        }
+        byte b = fBuf[fPos];
+        if (b >= 0) {
+            return (char) b;
+        }
+        if (!decode()) {
+            return 0;
+        }
+        int code = fDecodedCode;
+        if (code < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return (char) code;
+        }
+        code -= Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        return fLow
+            ? (char) (Character.MIN_LOW_SURROGATE + (code & 0x3FF))
+            : (char) (Character.MIN_HIGH_SURROGATE + (code >>> 10));
+    }
+
+    @Override
+    protected boolean incPos() {
+        if (fPos >= fLimit) {
+            fStarved = !fEndOfInput;
+            return false;
+        }
+        byte b = fBuf[fPos];
+        if (b >= 0) {
+            fPos++;
+            return true;
+        }
+        if (!decode()) {
+            return false;
+        }
+        if (!fLow && fDecodedCode >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            fLow = true;
+        } else {
+            fLow = false;
+            fPos += fDecodedLength;
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the root object or array was completely
+     * parsed. All data received after that are ignored.
+     */
+    public boolean isFinished() {
+        return fFinished;
+    }
+
+    @Override
+    protected boolean isStarved() {
+        return fStarved;
+    }
+
+    /**
+     * Prepares this parser for a new document. This method allows to re-use
+     * the same parser (and its buffers) for multiple consecutive documents.
+     * 
+     * @param listener the listener notified about parsed JSON elements
+     */
+    public void reset(IJsonListener listener) {
+        reset();
+        fListener = listener;
+        fPos = 0;
+        fLimit = 0;
+        fDecodedPos = -1;
+        fLow = false;
+        fStarved = false;
+        fEndOfInput = false;
+        fFinished = false;
+    }
+
+    /**
+     * Reads all tokens available in the received data. When the data end in
+     * the middle of a token, this token is either suspended by the tokenizer
+     * and continued later, or the position and the tokenizer state are rolled
+     * back to the beginning of this token.
+     */
+    private void run() {
+        while (!fFinished) {
+            int pos = fPos;
+            boolean low = fLow;
+            saveState();
+            JsonToken token = nextToken();
+            if (fStarved) {
+                fStarved = false;
+                if (!isSuspended()) {
+                    fPos = pos;
+                    fLow = low;
+                    restoreState();
+                }
+                break;
+            }
+            if (token == JsonToken.END) {
+                fFinished = true;
+            } else {
+                fireToken(token, fListener);
+            }
+        }
+    }
+
+}
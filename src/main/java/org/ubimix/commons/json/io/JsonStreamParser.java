@@ -0,0 +1,228 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import org.ubimix.commons.json.AbstractJsonParser;
+import org.ubimix.commons.json.IJsonListener;
+import org.ubimix.commons.json.TextBuffer;
+
+/**
+ * This parser reads JSON from a {@link Reader} through a fixed-size char
+ * buffer. The buffer is refilled when all characters are consumed so the whole
+ * document is never loaded in memory.
+ * 
+ * @author kotelnikov
+ */
+public class JsonStreamParser extends AbstractJsonParser {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private char[] fBuf;
+
+    private IOException fError;
+
+    private int fLength;
+
+    private int fPos;
+
+    private Reader fReader;
+
+    public JsonStreamParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize the size of the internal char buffer
+     */
+    public JsonStreamParser(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(
+                "Buffer size should be positive");
+        }
+        fBuf = new char[bufferSize];
+    }
+
+    /**
+     * Re-throws an error produced by the reader.
+     */
+    private void checkError() throws IOException {
+        if (fError != null) {
+            IOException error = fError;
+            fError = null;
+            throw error;
+        }
+    }
+
+    /**
+     * Loads the next portion of characters in the buffer.
+     * 
+     * @return <code>true</code> if new characters were loaded
+     */
+    private boolean fill() {
+        if (fReader == null) {
+            return false;
+        }
+        try {
+            int len;
+            do {
+                len = fReader.read(fBuf, 0, fBuf.length);
+            } while (len == 0);
+            if (len < 0) {
+                fReader = null;
+                return false;
+            }
+            fLength = len;
+            fPos = 0;
+            return true;
+        } catch (IOException e) {
+            fError = e;
+            fReader = null;
+            return false;
+        }
+    }
+
+    @Override
+    protected char getChar() {
+        if (fPos >= fLength && !fill()) {
+            return 0;
+        }
+        return fBuf[fPos];
+    }
+
+    @Override
+    protected boolean incPos() {
+        if (fPos >= fLength && !fill()) {
+            return false;
+        }
+        fPos++;
+        return true;
+    }
+
+    /**
+     * Copies characters from the internal buffer by blocks.
+     * 
+     * @see org.ubimix.commons.json.AbstractJsonParser#readText(char, byte,
+     *      org.ubimix.commons.json.TextBuffer)
+     */
+    @Override
+    protected void readText(char quot, byte endType, TextBuffer buf) {
+        while (fPos < fLength || fill()) {
+            int pos = fPos;
+            for (; pos < fLength; pos++) {
+                char ch = fBuf[pos];
+                if (ch == quot || ch == '\\' || ch == '\0' || is(ch, endType)) {
+                    break;
+                }
+            }
+            buf.append(fBuf, fPos, pos);
+            fPos = pos;
+            if (pos < fLength) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Parses an UTF-8 encoded stream. The stream is not closed by this method.
+     * 
+     * @param input the stream to parse
+     * @param listener the listener notified about parsed JSON elements
+     * @throws IOException
+     */
+    public void parse(InputStream input, IJsonListener listener)
+        throws IOException {
+        parse(input, UTF8, listener);
+    }
+
+    /**
+     * Parses a stream using the specified charset. The stream is not closed by
+     * this method.
+     * 
+     * @param input the stream to parse
+     * @param charset the charset of the stream
+     * @param listener the listener notified about parsed JSON elements
+     * @throws IOException
+     */
+    public void parse(
+        InputStream input,
+        Charset charset,
+        IJsonListener listener) throws IOException {
+        parse(new InputStreamReader(input, charset), listener);
+    }
+
+    /**
+     * Parses characters from the given reader. The reader is not closed by this
+     * method. If the reader fails then the listener is notified about the
+     * end of all opened elements and the read error is re-thrown.
+     * 
+     * @param reader the reader to parse
+     * @param listener the listener notified about parsed JSON elements
+     * @throws IOException
+     */
+    public void parse(Reader reader, IJsonListener listener)
+        throws IOException {
+        reset(reader);
+        try {
+            doParse(listener);
+        } finally {
+            fReader = null;
+        }
+        checkError();
+    }
+
+    /**
+     * Parses the next top-level object or array from the reader given to the
+     * {@link #reset(Reader)} method. This method is used to read streams of
+     * newline-delimited or concatenated documents; the same internal buffer
+     * is used for all documents of the stream.
+     * 
+     * @param listener the listener notified about elements of the document
+     * @return <code>true</code> if a document was parsed and
+     *         <code>false</code> if there is no more documents in the stream
+     * @throws IOException
+     */
+    public boolean parseNext(IJsonListener listener) throws IOException {
+        boolean result = doParseNext(listener);
+        checkError();
+        return result;
+    }
+
+    /**
+     * Sets a new reader and resets the state of this parser. The reader is not
+     * closed by this parser.
+     * 
+     * @param reader the reader to parse
+     * @return this parser
+     */
+    public JsonStreamParser reset(Reader reader) {
+        fReader = reader;
+        fError = null;
+        fLength = 0;
+        fPos = 0;
+        reset();
+        return this;
+    }
+
+}
@@ -0,0 +1,154 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.ubimix.commons.json.IJsonAccessor;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonSerializer;
+import org.ubimix.commons.json.JsonValue;
+
+/**
+ * This serializer writes JSON directly to a {@link Writer} or to an
+ * {@link OutputStream} (in UTF-8). Tokens are copied in an internal character
+ * buffer which is written by blocks, so big documents are never accumulated
+ * in memory. Listener methods can not throw I/O exceptions, so the first
+ * error stops writing and it is re-thrown by the {@link #flush()} method.
+ * 
+ * @author kotelnikov
+ */
+public class JsonStreamSerializer extends JsonSerializer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final char[] fBuf = new char[BUFFER_SIZE];
+
+    private IOException fError;
+
+    private int fPos;
+
+    private final Writer fWriter;
+
+    /**
+     * @param out the stream where the UTF-8 encoded JSON is written
+     */
+    public JsonStreamSerializer(OutputStream out) {
+        this(out, 0);
+    }
+
+    /**
+     * @param out the stream where the UTF-8 encoded JSON is written
+     * @param ident the number of spaces used to indent nested elements
+     */
+    public JsonStreamSerializer(OutputStream out, int ident) {
+        this(new OutputStreamWriter(out, UTF8), ident);
+    }
+
+    /**
+     * @param writer the writer where JSON is written
+     */
+    public JsonStreamSerializer(Writer writer) {
+        this(writer, 0);
+    }
+
+    /**
+     * @param writer the writer where JSON is written
+     * @param ident the number of spaces used to indent nested elements
+     */
+    public JsonStreamSerializer(Writer writer, int ident) {
+        super(ident);
+        fWriter = writer;
+    }
+
+    /**
+     * Writes all buffered characters and flushes the underlying writer. The
+     * writer is not closed.
+     * 
+     * @throws IOException if characters can not be written
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+        if (fError != null) {
+            throw fError;
+        }
+        fWriter.flush();
+    }
+
+    @Override
+    protected void print(CharSequence str, int start, int end) {
+        while (start < end) {
+            if (fPos == fBuf.length) {
+                writeBuffer();
+            }
+            int len = Math.min(end - start, fBuf.length - fPos);
+            if (str instanceof String) {
+                ((String) str).getChars(start, start + len, fBuf, fPos);
+            } else if (str instanceof StringBuffer) {
+                ((StringBuffer) str).getChars(start, start + len, fBuf, fPos);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    fBuf[fPos + i] = str.charAt(start + i);
+                }
+            }
+            fPos += len;
+            start += len;
+        }
+    }
+
+    @Override
+    protected void print(String string) {
+        print(string, 0, string.length());
+    }
+
+    /**
+     * Serializes the given value and flushes the output. The value can be a
+     * {@link JsonValue} or any object supported by the accessor.
+     * 
+     * @param value the value to write
+     * @throws IOException if the value can not be written
+     */
+    public void write(Object value) throws IOException {
+        IJsonAccessor accessor = JsonValue.getAccessorInstance();
+        if (value instanceof JsonValue) {
+            value = ((JsonValue) value).getJsonObject();
+        }
+        new JsonObjectVisitor(accessor).visit(value, this);
+        flush();
+    }
+
+    /**
+     * Writes the content of the internal buffer in the writer.
+     */
+    private void writeBuffer() {
+        if (fPos > 0 && fError == null) {
+            try {
+                fWriter.write(fBuf, 0, fPos);
+            } catch (IOException e) {
+                fError = e;
+            }
+        }
+        fPos = 0;
+    }
+
+}
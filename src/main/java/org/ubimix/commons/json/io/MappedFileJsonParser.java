@@ -0,0 +1,136 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.ubimix.commons.json.IJsonListener;
+
+/**
+ * This parser maps files in memory using {@link FileChannel#map} and reads
+ * them as UTF-8 encoded JSON. Files are mapped by chunks so documents bigger
+ * than 2Gb can be parsed. The content of files is never copied in the heap.
+ * 
+ * @author kotelnikov
+ */
+public class MappedFileJsonParser extends Utf8JsonParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024 * 1024;
+
+    private FileChannel fChannel;
+
+    private final int fChunkSize;
+
+    private IOException fError;
+
+    /**
+     * The offset in the file corresponding to the index 0 of the current
+     * buffer
+     */
+    private long fOffset;
+
+    private long fSize;
+
+    public MappedFileJsonParser() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize the maximal size of file regions mapped in memory
+     */
+    public MappedFileJsonParser(int chunkSize) {
+        if (chunkSize < 4) {
+            throw new IllegalArgumentException(
+                "Chunk size should be at least 4 bytes");
+        }
+        fChunkSize = chunkSize;
+    }
+
+    private ByteBuffer map(long offset) {
+        if (fChannel == null || offset >= fSize) {
+            return null;
+        }
+        try {
+            long len = Math.min(fChunkSize, fSize - offset);
+            ByteBuffer buf = fChannel.map(
+                FileChannel.MapMode.READ_ONLY,
+                offset,
+                len);
+            fOffset = offset;
+            return buf;
+        } catch (IOException e) {
+            fError = e;
+            fChannel = null;
+            return null;
+        }
+    }
+
+    @Override
+    protected ByteBuffer nextBuffer(ByteBuffer buf, int pos) {
+        return map(fOffset + pos);
+    }
+
+    /**
+     * Parses the content of the given channel starting from its current
+     * position. The channel is not closed by this method.
+     * 
+     * @param channel the file channel to parse
+     * @param listener the listener notified about parsed JSON elements
+     * @throws IOException
+     */
+    public void parse(FileChannel channel, IJsonListener listener)
+        throws IOException {
+        fChannel = channel;
+        fSize = channel.size();
+        fError = null;
+        try {
+            ByteBuffer buf = map(channel.position());
+            if (buf == null) {
+                buf = ByteBuffer.allocate(0);
+            }
+            parse(buf, listener);
+        } finally {
+            fChannel = null;
+        }
+        if (fError != null) {
+            IOException error = fError;
+            fError = null;
+            throw error;
+        }
+    }
+
+    /**
+     * Parses the given UTF-8 encoded file.
+     * 
+     * @param file the file to parse
+     * @param listener the listener notified about parsed JSON elements
+     * @throws IOException
+     */
+    public void parse(File file, IJsonListener listener) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            parse(input.getChannel(), listener);
+        } finally {
+            input.close();
+        }
+    }
+
+}
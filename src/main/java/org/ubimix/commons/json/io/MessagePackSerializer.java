@@ -0,0 +1,212 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+/**
+ * This serializer transforms listener calls in MessagePack. MessagePack
+ * headers of maps and arrays contain the number of their elements, so a
+ * one-byte "fix" header is reserved when a container is opened; when the
+ * container is closed the header is filled and, for containers with more
+ * than 15 elements, extended by moving the content of the container. Integer
+ * numbers and strings use the shortest possible formats; doubles are written
+ * with single precision when this does not change their values.
+ * 
+ * @author kotelnikov
+ */
+public class MessagePackSerializer extends AbstractBinarySerializer {
+
+    /**
+     * The number of elements in opened containers
+     */
+    private int[] fCounts = new int[16];
+
+    /**
+     * The number of opened containers
+     */
+    private int fDepth;
+
+    /**
+     * Positions of headers of opened containers
+     */
+    private int[] fPositions = new int[16];
+
+    public MessagePackSerializer() {
+    }
+
+    public void beginArray() {
+        push();
+    }
+
+    public void beginArrayElement() {
+        fCounts[fDepth - 1]++;
+    }
+
+    public void beginObject() {
+        push();
+    }
+
+    public void beginObjectProperty(String property) {
+        fCounts[fDepth - 1]++;
+        writeString(property);
+    }
+
+    public void endArray() {
+        pop(0x90, 0xDC, 0xDD);
+    }
+
+    public void endArrayElement() {
+    }
+
+    public void endObject() {
+        pop(0x80, 0xDE, 0xDF);
+    }
+
+    public void endObjectProperty(String property) {
+    }
+
+    public void onValue(boolean value) {
+        write(value ? 0xC3 : 0xC2);
+    }
+
+    public void onValue(double value) {
+        float f = (float) value;
+        if (f == value || Double.isNaN(value)) {
+            write(0xCA);
+            write32(Float.floatToIntBits(f));
+        } else {
+            write(0xCB);
+            write64(Double.doubleToLongBits(value));
+        }
+    }
+
+    public void onValue(int value) {
+        onValue((long) value);
+    }
+
+    public void onValue(long value) {
+        if (value >= -32 && value <= 127) {
+            write((int) value & 0xFF);
+        } else if (value >= 0) {
+            if (value <= 0xFF) {
+                write(0xCC);
+                write((int) value);
+            } else if (value <= 0xFFFF) {
+                write(0xCD);
+                write16((int) value);
+            } else if (value <= 0xFFFFFFFFL) {
+                write(0xCE);
+                write32((int) value);
+            } else {
+                write(0xCF);
+                write64(value);
+            }
+        } else {
+            if (value >= Byte.MIN_VALUE) {
+                write(0xD0);
+                write((int) value);
+            } else if (value >= Short.MIN_VALUE) {
+                write(0xD1);
+                write16((int) value);
+            } else if (value >= Integer.MIN_VALUE) {
+                write(0xD2);
+                write32((int) value);
+            } else {
+                write(0xD3);
+                write64(value);
+            }
+        }
+    }
+
+    public void onValue(String value) {
+        if (value == null) {
+            write(0xC0);
+        } else {
+            writeString(value);
+        }
+    }
+
+    /**
+     * Closes the current container and writes its header.
+     * 
+     * @param fix the code of the "fix" format
+     * @param code16 the code of the format with a 16-bit size
+     * @param code32 the code of the format with a 32-bit size
+     */
+    private void pop(int fix, int code16, int code32) {
+        fDepth--;
+        int pos = fPositions[fDepth];
+        int count = fCounts[fDepth];
+        if (count < 16) {
+            set(pos, fix | count);
+        } else if (count <= 0xFFFF) {
+            insert(pos + 1, 2);
+            set(pos, code16);
+            set(pos + 1, count >>> 8);
+            set(pos + 2, count);
+        } else {
+            insert(pos + 1, 4);
+            set(pos, code32);
+            set(pos + 1, count >>> 24);
+            set(pos + 2, count >>> 16);
+            set(pos + 3, count >>> 8);
+            set(pos + 4, count);
+        }
+    }
+
+    /**
+     * Opens a new container and reserves one byte for its header.
+     */
+    private void push() {
+        if (fDepth == fCounts.length) {
+            int len = fDepth * 2;
+            int[] counts = new int[len];
+            System.arraycopy(fCounts, 0, counts, 0, fDepth);
+            fCounts = counts;
+            int[] positions = new int[len];
+            System.arraycopy(fPositions, 0, positions, 0, fDepth);
+            fPositions = positions;
+        }
+        fCounts[fDepth] = 0;
+        fPositions[fDepth] = getSize();
+        fDepth++;
+        write(0);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        fDepth = 0;
+    }
+
+    private void writeString(String str) {
+        int len = getUtf8Length(str);
+        if (len < 32) {
+            write(0xA0 | len);
+        } else if (len <= 0xFF) {
+            write(0xD9);
+            write(len);
+        } else if (len <= 0xFFFF) {
+            write(0xDA);
+            write16(len);
+        } else {
+            write(0xDB);
+            write32(len);
+        }
+        writeUtf8(str, len);
+    }
+
+}
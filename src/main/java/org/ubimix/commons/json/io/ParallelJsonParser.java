@@ -0,0 +1,337 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.ubimix.commons.json.IJsonAccessor;
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+import org.ubimix.commons.json.JsonArray;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonValue;
+
+/**
+ * This parser splits big top-level arrays in ranges of elements and parses
+ * these ranges in parallel using the given {@link ExecutorService}. Element
+ * boundaries are found by a fast pre-scan tracking only nesting of objects and
+ * arrays and quoted strings; each range is submitted as soon as it is found,
+ * so the pre-scan and parsing overlap. Each task uses its own
+ * {@link JsonParser} and {@link JsonObjectBuilder}; the results are joined in
+ * one array in the original order.
+ * <p>
+ * Small documents and documents where the root element is not an array are
+ * parsed sequentially in the calling thread.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class ParallelJsonParser {
+
+    /**
+     * A view on a range of array elements enclosed in square brackets. It
+     * allows to parse the range as a separate array without copying it.
+     */
+    private static class ArrayView implements CharSequence {
+
+        private final int fEnd;
+
+        private final int fStart;
+
+        private final CharSequence fText;
+
+        public ArrayView(CharSequence text, int start, int end) {
+            fText = text;
+            fStart = start;
+            fEnd = end;
+        }
+
+        public char charAt(int index) {
+            if (index == 0) {
+                return '[';
+            }
+            int pos = fStart + index - 1;
+            return pos < fEnd ? fText.charAt(pos) : ']';
+        }
+
+        public int length() {
+            return fEnd - fStart + 2;
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            if (start > 0 && fStart + end - 1 <= fEnd) {
+                return fText.subSequence(fStart + start - 1, fStart + end - 1);
+            }
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(length())
+                .append('[')
+                .append(fText, fStart, fEnd)
+                .append(']')
+                .toString();
+        }
+    }
+
+    /**
+     * The default minimal number of characters parsed by one task
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * Returns <code>true</code> if the given range contains only spaces.
+     */
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final IJsonAccessor fAccessor;
+
+    private final int fChunkSize;
+
+    private final ExecutorService fExecutor;
+
+    /**
+     * @param executor the executor running parsing tasks
+     */
+    public ParallelJsonParser(ExecutorService executor) {
+        this(executor, JsonValue.getAccessorInstance(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param executor the executor running parsing tasks
+     * @param accessor the accessor used to create objects and arrays
+     * @param chunkSize the minimal number of characters parsed by one task
+     */
+    public ParallelJsonParser(
+        ExecutorService executor,
+        IJsonAccessor accessor,
+        int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(
+                "Chunk size should be positive");
+        }
+        fExecutor = executor;
+        fAccessor = accessor;
+        fChunkSize = chunkSize;
+    }
+
+    /**
+     * Cancels all submitted tasks.
+     */
+    private void cancel(List<Future<Object>> tasks) {
+        for (Future<Object> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Joins arrays returned by tasks in one array.
+     */
+    private Object join(List<Future<Object>> tasks)
+        throws InterruptedException {
+        Object result = fAccessor.newArray();
+        int pos = 0;
+        try {
+            for (Future<Object> task : tasks) {
+                Object array = task.get();
+                int size = fAccessor.getArraySize(array);
+                for (int i = 0; i < size; i++) {
+                    Object value = fAccessor.getArrayValue(array, i);
+                    fAccessor.setArrayValue(result, pos++, value);
+                }
+            }
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Parses the given text and returns the resulting object or array created
+     * by the accessor.
+     * 
+     * @param text the text to parse
+     * @return the root element of the document or <code>null</code> if the
+     *         text does not contain any objects or arrays
+     * @throws InterruptedException if the calling thread was interrupted while
+     *         waiting for the results of tasks
+     */
+    public Object parse(CharSequence text) throws InterruptedException {
+        List<Future<Object>> tasks = new ArrayList<Future<Object>>();
+        if (text.length() > fChunkSize && split(text, tasks)) {
+            return join(tasks);
+        }
+        cancel(tasks);
+        return parse(text, 0, -1);
+    }
+
+    /**
+     * Parses the given range of array elements or the whole text if the end
+     * of the range is negative.
+     */
+    private Object parse(CharSequence text, int start, int end) {
+        JsonParser parser = new JsonParser();
+        JsonObjectBuilder builder = new JsonObjectBuilder(fAccessor);
+        if (end < 0) {
+            parser.parse(text, builder);
+        } else {
+            parser.parse(new ArrayView(text, start, end), builder);
+        }
+        return builder.getTop();
+    }
+
+    /**
+     * Parses the given text containing an array and returns the result as a
+     * {@link JsonArray}.
+     * 
+     * @param text the text to parse
+     * @return the parsed array or <code>null</code> if the root element of the
+     *         document is not an array
+     * @throws InterruptedException if the calling thread was interrupted while
+     *         waiting for the results of tasks
+     */
+    public JsonArray parseArray(CharSequence text) throws InterruptedException {
+        Object array = parse(text);
+        return fAccessor.getType(array) == JsonType.ARRAY ? JsonArray
+            .newValue(array) : null;
+    }
+
+    /**
+     * Finds boundaries of elements of the root array and submits a task for
+     * each range of elements. Returns <code>false</code> if the root element
+     * is not an array or if the structure of the document is broken.
+     */
+    private boolean split(CharSequence text, List<Future<Object>> tasks) {
+        int len = text.length();
+        int pos = 0;
+        while (pos < len && text.charAt(pos) <= ' ') {
+            pos++;
+        }
+        if (pos == len || text.charAt(pos) != '[') {
+            return false;
+        }
+        int start = ++pos;
+        int depth = 0;
+        boolean tokenStart = true;
+        for (; pos < len; pos++) {
+            char ch = text.charAt(pos);
+            switch (ch) {
+                case '"':
+                case '\'':
+                    if (tokenStart) {
+                        // Skip the quoted string
+                        char quot = ch;
+                        for (pos++; pos < len; pos++) {
+                            ch = text.charAt(pos);
+                            if (ch == '\\') {
+                                pos++;
+                            } else if (ch == quot) {
+                                break;
+                            }
+                        }
+                        if (pos >= len) {
+                            return false;
+                        }
+                    }
+                    tokenStart = false;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    tokenStart = true;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        if (ch != ']') {
+                            return false;
+                        }
+                        if (!isBlank(text, start, pos) || tasks.isEmpty()) {
+                            submit(text, start, pos, tasks);
+                        }
+                        return true;
+                    }
+                    depth--;
+                    tokenStart = false;
+                    break;
+                case ',':
+                    if (depth == 0 && pos - start >= fChunkSize) {
+                        submit(text, start, pos, tasks);
+                        start = pos + 1;
+                    }
+                    tokenStart = true;
+                    break;
+                case ':':
+                    tokenStart = true;
+                    break;
+                case '\\':
+                    // Escaped characters of non-quoted tokens are not
+                    // separators
+                    pos++;
+                    tokenStart = false;
+                    break;
+                default:
+                    if (ch > ' ') {
+                        tokenStart = false;
+                    }
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Submits a new task parsing the specified range of array elements.
+     */
+    private void submit(
+        final CharSequence text,
+        final int start,
+        final int end,
+        List<Future<Object>> tasks) {
+        Future<Object> task = fExecutor.submit(new Callable<Object>() {
+            public Object call() throws Exception {
+                return parse(text, start, end);
+            }
+        });
+        tasks.add(task);
+    }
+
+}
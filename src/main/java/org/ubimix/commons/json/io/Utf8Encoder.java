@@ -0,0 +1,108 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+/**
+ * UTF-8 encoding of character sequences shared by binary serializers.
+ * Unpaired surrogates are encoded as the U+FFFD replacement character.
+ * 
+ * @author kotelnikov
+ */
+final class Utf8Encoder {
+
+    /**
+     * The maximal number of bytes required to encode one character; a
+     * surrogate pair takes four bytes for two characters.
+     */
+    public static final int MAX_BYTES_PER_CHAR = 3;
+
+    /**
+     * Encodes the specified region of the given sequence. The array should
+     * have enough space for the encoded bytes.
+     * 
+     * @param str the sequence to encode
+     * @param start the position of the first character to encode
+     * @param end the position following the last character to encode
+     * @param buf the array where encoded bytes are written
+     * @param pos the position of the first byte to write
+     * @return the position following the last written byte
+     */
+    public static int encode(
+        CharSequence str,
+        int start,
+        int end,
+        byte[] buf,
+        int pos) {
+        for (int i = start; i < end; i++) {
+            char ch = str.charAt(i);
+            if (ch < 0x80) {
+                buf[pos++] = (byte) ch;
+            } else if (ch < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (ch >> 6));
+                buf[pos++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch)
+                && i + 1 < end
+                && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int code = Character.toCodePoint(ch, str.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (code >> 18));
+                buf[pos++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (code & 0x3F));
+            } else if (ch >= Character.MIN_SURROGATE
+                && ch <= Character.MAX_SURROGATE) {
+                // The U+FFFD replacement character
+                buf[pos++] = (byte) 0xEF;
+                buf[pos++] = (byte) 0xBF;
+                buf[pos++] = (byte) 0xBD;
+            } else {
+                buf[pos++] = (byte) (0xE0 | (ch >> 12));
+                buf[pos++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the number of bytes required to encode the specified region of
+     * the given sequence.
+     */
+    public static int getLength(CharSequence str, int start, int end) {
+        int result = end - start;
+        for (int i = start; i < end; i++) {
+            char ch = str.charAt(i);
+            if (ch >= 0x80) {
+                if (ch < 0x800) {
+                    result++;
+                } else if (Character.isHighSurrogate(ch)
+                    && i + 1 < end
+                    && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    // Four bytes for two characters
+                    result += 2;
+                    i++;
+                } else {
+                    result += 2;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Utf8Encoder() {
+    }
+
+}
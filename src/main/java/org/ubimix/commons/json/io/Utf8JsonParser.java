@@ -0,0 +1,387 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.ubimix.commons.json.AbstractJsonParser;
+import org.ubimix.commons.json.IJsonListener;
+import org.ubimix.commons.json.TextBuffer;
+
+/**
+ * This parser reads UTF-8 encoded JSON directly from byte arrays and heap or
+ * direct {@link ByteBuffer}s. ASCII characters (all structural JSON symbols)
+ * are returned as is; multi-byte sequences are decoded only when the parser
+ * reaches them. Characters outside of the Basic Multilingual Plane are
+ * returned as surrogate pairs; malformed sequences are replaced by the
+ * U+FFFD character. Quoted strings are scanned by blocks of 8 bytes: each
+ * block is read as one <code>long</code> word and checked for quotes,
+ * backslashes, zero and non-ASCII bytes using bitwise operations only.
+ * 
+ * @author kotelnikov
+ */
+public class Utf8JsonParser extends AbstractJsonParser {
+
+    /**
+     * The high bit of each byte in a word
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * The seven low bits of each byte in a word
+     */
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * The word where each byte is equal to 1
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /**
+     * Returns a word where the high bit of a byte is set if and only if the
+     * same byte of the given word is zero.
+     */
+    private static long getZeroBytes(long word) {
+        long t = (word & LOW_BITS) + LOW_BITS;
+        return ~(t | word | LOW_BITS);
+    }
+
+    private ByteBuffer fBuf;
+
+    /**
+     * The array used to copy ASCII characters from buffers without
+     * accessible arrays
+     */
+    private byte[] fBytes;
+
+    /**
+     * The position of the decoded multi-byte sequence
+     */
+    private int fDecodedPos = -1;
+
+    /**
+     * Code point of the decoded multi-byte sequence
+     */
+    private int fDecodedCode;
+
+    /**
+     * The length of the decoded multi-byte sequence
+     */
+    private int fDecodedLength;
+
+    private int fLimit;
+
+    /**
+     * This flag is <code>true</code> when the current character is the low
+     * surrogate of a supplementary code point.
+     */
+    private boolean fLow;
+
+    private int fPos;
+
+    public Utf8JsonParser() {
+    }
+
+    /**
+     * Appends ASCII characters from the specified region of the current
+     * buffer to the given text buffer. Bytes are copied directly from the
+     * backing array of the buffer if it is accessible and by blocks
+     * otherwise.
+     */
+    private void appendAscii(int start, int end, TextBuffer buf) {
+        if (fBuf.hasArray()) {
+            int offset = fBuf.arrayOffset();
+            buf.appendAscii(fBuf.array(), offset + start, offset + end);
+            return;
+        }
+        if (fBytes == null) {
+            fBytes = new byte[1024];
+        }
+        ByteBuffer view = fBuf.duplicate();
+        view.position(start);
+        while (start < end) {
+            int len = Math.min(end - start, fBytes.length);
+            view.get(fBytes, 0, len);
+            buf.appendAscii(fBytes, 0, len);
+            start += len;
+        }
+    }
+
+    /**
+     * Decodes the multi-byte sequence starting at the current position.
+     */
+    private void decode() {
+        if (fDecodedPos == fPos) {
+            return;
+        }
+        int b = fBuf.get(fPos) & 0xFF;
+        int len;
+        int code;
+        int min;
+        if ((b & 0xE0) == 0xC0) {
+            len = 2;
+            code = b & 0x1F;
+            min = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            len = 3;
+            code = b & 0x0F;
+            min = 0x800;
+        } else if ((b & 0xF8) == 0xF0) {
+            len = 4;
+            code = b & 0x07;
+            min = 0x10000;
+        } else {
+            len = 1;
+            code = -1;
+            min = 0;
+        }
+        if (len > 1 && !ensure(len)) {
+            len = 1;
+            code = -1;
+        }
+        for (int i = 1; i < len; i++) {
+            int c = fBuf.get(fPos + i) & 0xFF;
+            if ((c & 0xC0) != 0x80) {
+                // Skip only the leading byte of a broken sequence
+                len = 1;
+                code = -1;
+                break;
+            }
+            code = (code << 6) | (c & 0x3F);
+        }
+        if (code < min
+            || code > Character.MAX_CODE_POINT
+            || (code >= Character.MIN_SURROGATE
+                && code <= Character.MAX_SURROGATE)) {
+            code = REPLACEMENT_CHAR;
+        }
+        fDecodedPos = fPos;
+        fDecodedCode = code;
+        fDecodedLength = len;
+    }
+
+    /**
+     * Checks that the given number of bytes is available from the current
+     * position and loads next buffers if required.
+     * 
+     * @param count the number of required bytes
+     * @return <code>true</code> if the requested bytes are available
+     */
+    private boolean ensure(int count) {
+        while (fPos + count > fLimit) {
+            if (fBuf == null) {
+                return false;
+            }
+            int available = fLimit - fPos;
+            ByteBuffer buf = nextBuffer(fBuf, fPos);
+            if (buf == null) {
+                return false;
+            }
+            fBuf = buf;
+            fPos = buf.position();
+            fLimit = buf.limit();
+            fDecodedPos = -1;
+            if (fLimit - fPos <= available) {
+                // The input is truncated
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected char getChar() {
+        if (!ensure(1)) {
+            return 0;
+        }
+        byte b = fBuf.get(fPos);
+        if (b >= 0) {
+            return (char) b;
+        }
+        decode();
+        int code = fDecodedCode;
+        if (code < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return (char) code;
+        }
+        code -= Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        return fLow
+            ? (char) (Character.MIN_LOW_SURROGATE + (code & 0x3FF))
+            : (char) (Character.MIN_HIGH_SURROGATE + (code >>> 10));
+    }
+
+    @Override
+    protected boolean incPos() {
+        if (!ensure(1)) {
+            return false;
+        }
+        byte b = fBuf.get(fPos);
+        if (b >= 0) {
+            fPos++;
+            return true;
+        }
+        decode();
+        if (!fLow && fDecodedCode >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            fLow = true;
+        } else {
+            fLow = false;
+            fPos += fDecodedLength;
+        }
+        return true;
+    }
+
+    /**
+     * This method is called when all bytes of the current buffer are consumed
+     * or when a multi-byte character is split between buffers. It should
+     * return a new buffer where the bytes starting from the given position of
+     * the current buffer are available between the position and the limit of
+     * the returned buffer. The returned buffer should contain more bytes than
+     * the remaining part of the current buffer; otherwise the input is
+     * considered as truncated. This implementation returns <code>null</code>
+     * so only the initial buffer is parsed.
+     * 
+     * @param buf the current buffer
+     * @param pos the position of the first byte which is not consumed yet
+     * @return a new buffer or <code>null</code> if there is no more data
+     */
+    protected ByteBuffer nextBuffer(ByteBuffer buf, int pos) {
+        return null;
+    }
+
+    /**
+     * Parses bytes from the given array.
+     * 
+     * @param array the UTF-8 encoded JSON
+     * @param listener the listener notified about parsed JSON elements
+     */
+    public void parse(byte[] array, IJsonListener listener) {
+        parse(array, 0, array.length, listener);
+    }
+
+    /**
+     * Parses the specified range of the given array.
+     * 
+     * @param array the UTF-8 encoded JSON
+     * @param offset the offset of the first byte to parse
+     * @param len the number of bytes to parse
+     * @param listener the listener notified about parsed JSON elements
+     */
+    public void parse(
+        byte[] array,
+        int offset,
+        int len,
+        IJsonListener listener) {
+        parse(ByteBuffer.wrap(array, offset, len), listener);
+    }
+
+    /**
+     * Parses bytes between the position and the limit of the given buffer. The
+     * position of the buffer is not changed.
+     * 
+     * @param buf the buffer containing the UTF-8 encoded JSON
+     * @param listener the listener notified about parsed JSON elements
+     */
+    public void parse(ByteBuffer buf, IJsonListener listener) {
+        fBuf = buf;
+        fPos = buf.position();
+        fLimit = buf.limit();
+        fDecodedPos = -1;
+        fLow = false;
+        try {
+            doParse(listener);
+        } finally {
+            fBuf = null;
+        }
+    }
+
+    /**
+     * Copies ASCII characters directly from the buffer; other characters are
+     * decoded one by one.
+     * 
+     * @see org.ubimix.commons.json.AbstractJsonParser#readText(char, byte,
+     *      org.ubimix.commons.json.TextBuffer)
+     */
+    @Override
+    protected void readText(char quot, byte endType, TextBuffer buf) {
+        while (true) {
+            if (!fLow) {
+                int pos = fPos;
+                if (endType == 0) {
+                    pos = readWords(quot, pos, buf);
+                }
+                while (pos < fLimit) {
+                    byte b = fBuf.get(pos);
+                    if (b <= 0
+                        || b == quot
+                        || b == '\\'
+                        || is((char) b, endType)) {
+                        break;
+                    }
+                    buf.append((char) b);
+                    pos++;
+                }
+                fPos = pos;
+            }
+            // The end of the buffer, a stop symbol or a multi-byte character
+            char ch = getChar();
+            if (ch == 0 || ch == quot || ch == '\\' || is(ch, endType)) {
+                break;
+            }
+            buf.append(ch);
+            incPos();
+        }
+    }
+
+    /**
+     * Scans ASCII characters by blocks of 8 bytes up to the first quote,
+     * backslash, zero or non-ASCII byte and appends the whole scanned run to
+     * the given buffer at once.
+     * 
+     * @param quot the closing quote
+     * @param pos the position of the first byte to copy
+     * @param buf the buffer where characters are copied
+     * @return the position of the first byte which is not copied
+     */
+    private int readWords(char quot, int pos, TextBuffer buf) {
+        boolean bigEndian = fBuf.order() == ByteOrder.BIG_ENDIAN;
+        long quots = ONES * quot;
+        long slashes = ONES * '\\';
+        int start = pos;
+        while (pos + 8 <= fLimit) {
+            long word = fBuf.getLong(pos);
+            long mask = getZeroBytes(word ^ quots)
+                | getZeroBytes(word ^ slashes)
+                | getZeroBytes(word)
+                | (word & HIGH_BITS);
+            int count = 8;
+            if (mask != 0) {
+                count = bigEndian
+                    ? Long.numberOfLeadingZeros(mask) >>> 3
+                    : Long.numberOfTrailingZeros(mask) >>> 3;
+            }
+            pos += count;
+            if (count < 8) {
+                break;
+            }
+        }
+        appendAscii(start, pos, buf);
+        return pos;
+    }
+
+}
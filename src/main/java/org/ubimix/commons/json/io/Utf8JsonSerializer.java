@@ -0,0 +1,243 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import org.ubimix.commons.json.IJsonAccessor;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonSerializer;
+import org.ubimix.commons.json.JsonValue;
+
+/**
+ * This serializer encodes JSON directly in UTF-8 bytes without creating
+ * intermediate strings or character arrays. Bytes are written in buffers
+ * taken from a {@link ByteBufferPool}. If a channel is given then full
+ * buffers are written to this channel and re-used, so long strings are
+ * written in chunks and the serializer never leaves pooled buffers;
+ * otherwise the buffer is
+ * replaced by a bigger one when it is full, and encoded bytes can be
+ * accessed with the {@link #getBuffer()} method or written to a channel
+ * with the {@link #writeTo(WritableByteChannel)} method. The
+ * {@link #release()} method returns the buffer to the pool.
+ * <p>
+ * Listener methods can not throw I/O exceptions, so the first error of the
+ * channel stops writing and it is re-thrown by the {@link #flush()} method.
+ * Channels should be in the blocking mode; a channel which does not accept
+ * bytes is reported as an error.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class Utf8JsonSerializer extends JsonSerializer {
+
+    private ByteBuffer fBuf;
+
+    /**
+     * The array used to encode characters for direct buffers
+     */
+    private byte[] fBytes;
+
+    private final WritableByteChannel fChannel;
+
+    private IOException fError;
+
+    private final ByteBufferPool fPool;
+
+    /**
+     * @param pool the pool of buffers
+     * @param ident the number of spaces used to indent nested elements
+     */
+    public Utf8JsonSerializer(ByteBufferPool pool, int ident) {
+        this(null, pool, ident);
+    }
+
+    /**
+     * @param channel the blocking channel where full buffers are written
+     * @param pool the pool of buffers
+     * @param ident the number of spaces used to indent nested elements
+     */
+    public Utf8JsonSerializer(
+        WritableByteChannel channel,
+        ByteBufferPool pool,
+        int ident) {
+        super(ident);
+        fChannel = channel;
+        fPool = pool;
+    }
+
+    /**
+     * Makes sure that the given number of bytes can be written in the
+     * buffer. If this serializer has a channel then the buffer is written to
+     * the channel; otherwise it is replaced by a bigger one.
+     */
+    private void ensure(int len) {
+        if (fBuf == null) {
+            fBuf = fPool.acquire(len);
+        } else if (fBuf.remaining() < len) {
+            if (fChannel != null) {
+                fBuf.flip();
+                write(fChannel);
+                fBuf.clear();
+            }
+            if (fBuf.remaining() < len) {
+                ByteBuffer buf = fPool.acquire(Math.max(
+                    fBuf.capacity() * 2,
+                    fBuf.position() + len));
+                fBuf.flip();
+                buf.put(fBuf);
+                fPool.release(fBuf);
+                fBuf = buf;
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered bytes to the channel of this serializer.
+     * 
+     * @throws IOException if bytes can not be written
+     */
+    public void flush() throws IOException {
+        if (fChannel != null && fBuf != null) {
+            fBuf.flip();
+            write(fChannel);
+            fBuf.clear();
+        }
+        if (fError != null) {
+            throw fError;
+        }
+    }
+
+    /**
+     * Returns a read-only view on bytes encoded and not written yet. The
+     * returned buffer is valid until the next modification of this
+     * serializer.
+     */
+    public ByteBuffer getBuffer() {
+        if (fBuf == null) {
+            return ByteBuffer.allocate(0);
+        }
+        ByteBuffer buf = fBuf.asReadOnlyBuffer();
+        buf.flip();
+        return buf;
+    }
+
+    @Override
+    protected void print(CharSequence str, int start, int end) {
+        int max = Utf8Encoder.MAX_BYTES_PER_CHAR;
+        while (start < end) {
+            // Space for one character or for one surrogate pair
+            ensure(max + 1);
+            int count = Math.min(end - start, fBuf.remaining() / max);
+            int last = start + count;
+            if (last < end && Character.isHighSurrogate(str.charAt(last - 1))) {
+                // Surrogate pairs are not split between chunks
+                last += count > 1 ? -1 : 1;
+            }
+            int pos = fBuf.position();
+            if (fBuf.hasArray()) {
+                int offset = fBuf.arrayOffset();
+                pos = Utf8Encoder.encode(
+                    str,
+                    start,
+                    last,
+                    fBuf.array(),
+                    offset + pos) - offset;
+                fBuf.position(pos);
+            } else {
+                if (fBytes == null || fBytes.length < fBuf.remaining()) {
+                    fBytes = new byte[fBuf.remaining()];
+                }
+                int len = Utf8Encoder.encode(str, start, last, fBytes, 0);
+                fBuf.put(fBytes, 0, len);
+            }
+            start = last;
+        }
+    }
+
+    @Override
+    protected void print(String string) {
+        print(string, 0, string.length());
+    }
+
+    /**
+     * Returns the buffer of this serializer to the pool and removes all
+     * bytes which are not written yet. The serializer takes a new buffer when
+     * it is used again.
+     */
+    public void release() {
+        if (fBuf != null) {
+            fPool.release(fBuf);
+            fBuf = null;
+        }
+    }
+
+    /**
+     * Serializes the given value and flushes the output to the channel (if
+     * any). The value can be a {@link JsonValue} or any object supported by
+     * the accessor.
+     * 
+     * @param value the value to write
+     * @throws IOException if the value can not be written
+     */
+    public void write(Object value) throws IOException {
+        IJsonAccessor accessor = JsonValue.getAccessorInstance();
+        if (value instanceof JsonValue) {
+            value = ((JsonValue) value).getJsonObject();
+        }
+        new JsonObjectVisitor(accessor).visit(value, this);
+        flush();
+    }
+
+    /**
+     * Writes the content of the flipped internal buffer to the given channel
+     * and keeps the first error. A channel which does not accept bytes (a
+     * non-blocking channel) is reported as an error instead of being polled.
+     */
+    private void write(WritableByteChannel channel) {
+        try {
+            while (fError == null && fBuf.hasRemaining()) {
+                if (channel.write(fBuf) == 0) {
+                    throw new IOException("The channel does not accept "
+                        + "bytes; it should be in the blocking mode");
+                }
+            }
+        } catch (IOException e) {
+            fError = e;
+        }
+    }
+
+    /**
+     * Writes all encoded bytes to the given channel and clears the buffer.
+     * 
+     * @param channel the channel where bytes are written
+     * @throws IOException if bytes can not be written
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        if (fBuf != null) {
+            fBuf.flip();
+            write(channel);
+            fBuf.clear();
+        }
+        if (fError != null) {
+            throw fError;
+        }
+    }
+
+}
@@ -12,6 +12,11 @@ public class AllTests {
         suite.addTestSuite(JsonHelperTest.class);
         suite.addTestSuite(JsonSerializeDeserializeTest.class);
         suite.addTestSuite(JsonObjectTest.class);
+        suite.addTestSuite(JsonNumberParserTest.class);
+        suite.addTestSuite(JsonSymbolTableTest.class);
+        suite.addTestSuite(JsonReaderTest.class);
+        suite.addTestSuite(JsonTapeTest.class);
+        suite.addTestSuite(JsonPathExtractorTest.class);
         // $JUnit-END$
         return suite;
     }
@@ -0,0 +1,161 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonNumberParserTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public JsonNumberParserTest(String name) {
+        super(name);
+    }
+
+    private void checkDouble(String str) {
+        JsonNumberParser parser = new JsonNumberParser();
+        assertEquals(str, JsonType.DOUBLE, parser.parse(str));
+        double control = Double.parseDouble(str);
+        assertEquals(
+            str,
+            Double.doubleToLongBits(control),
+            Double.doubleToLongBits(parser.getDouble()));
+    }
+
+    public void test() {
+        test("0", JsonType.INTEGER, 0);
+        test("-0", JsonType.INTEGER, 0);
+        test("+5", JsonType.INTEGER, 5);
+        test("00012", JsonType.INTEGER, 12);
+        test("123", JsonType.INTEGER, 123);
+        test("-123", JsonType.INTEGER, -123);
+        test("2147483647", JsonType.INTEGER, Integer.MAX_VALUE);
+        test("-2147483648", JsonType.INTEGER, Integer.MIN_VALUE);
+        test("2147483648", JsonType.LONG, 2147483648L);
+        test("-2147483649", JsonType.LONG, -2147483649L);
+        test("9223372036854775807", JsonType.LONG, Long.MAX_VALUE);
+        test("-9223372036854775808", JsonType.LONG, Long.MIN_VALUE);
+        test("9223372036854775808", JsonType.DOUBLE, 9223372036854775808.0);
+        test("12345678901234567890123", JsonType.DOUBLE, 1.2345678901234568E22);
+
+        test("0.5", JsonType.DOUBLE, 0.5);
+        test("-0.5", JsonType.DOUBLE, -0.5);
+        test(".5", JsonType.DOUBLE, 0.5);
+        test("5.", JsonType.DOUBLE, 5);
+        test("1e5", JsonType.DOUBLE, 100000);
+        test("1E+5", JsonType.DOUBLE, 100000);
+        test("-1.5e-3", JsonType.DOUBLE, -0.0015);
+        test("1e400", JsonType.DOUBLE, Double.POSITIVE_INFINITY);
+        test("1e-400", JsonType.DOUBLE, 0);
+
+        test("", JsonType.NONE, 0);
+        test("-", JsonType.NONE, 0);
+        test(".", JsonType.NONE, 0);
+        test("e5", JsonType.NONE, 0);
+        test("1e", JsonType.NONE, 0);
+        test("1e+", JsonType.NONE, 0);
+        test("1.2.3", JsonType.NONE, 0);
+        test("12abc", JsonType.NONE, 0);
+        test("0x10", JsonType.NONE, 0);
+        test("hello", JsonType.NONE, 0);
+
+        // Java floating point literals accepted by the original parser
+        test("1f", JsonType.DOUBLE, 1);
+        test("-2.5D", JsonType.DOUBLE, -2.5);
+        test("1e3d", JsonType.DOUBLE, 1000);
+        test("9223372036854775808F", JsonType.DOUBLE, 9223372036854775808.0);
+        test("0x1.8p1", JsonType.DOUBLE, 3);
+        test("-0X10P-4f", JsonType.DOUBLE, -1);
+        test("0x.8p0", JsonType.DOUBLE, 0.5);
+        test("f", JsonType.NONE, 0);
+        test(".d", JsonType.NONE, 0);
+        test("1ff", JsonType.NONE, 0);
+        test("1e5 f", JsonType.NONE, 0);
+        test("0x1p", JsonType.NONE, 0);
+        test("0xp1", JsonType.NONE, 0);
+        test("0x1g1", JsonType.NONE, 0);
+        test("0x1p1ff", JsonType.NONE, 0);
+
+        // These are not numbers: the original parser lower-cased tokens
+        // before calling Double.parseDouble
+        test("NaN", JsonType.NONE, 0);
+        test("-Infinity", JsonType.NONE, 0);
+        test("Infinity", JsonType.NONE, 0);
+
+        JsonNumberParser parser = new JsonNumberParser();
+        parser.parse("-0.0");
+        assertEquals(
+            Double.doubleToLongBits(-0.0),
+            Double.doubleToLongBits(parser.getDouble()));
+        assertEquals(JsonType.INTEGER, parser.parse("[42]", 1, 3));
+        assertEquals(42, parser.getInteger());
+
+        Object array = JsonAccessor.getInstance().parse("[1F, 0x1p1, NaN]");
+        assertEquals(Arrays.<Object> asList(1.0, 2.0, "NaN"), array);
+    }
+
+    private void test(String str, JsonType type, double value) {
+        JsonNumberParser parser = new JsonNumberParser();
+        assertEquals(str, type, parser.parse(str));
+        if (type != JsonType.NONE) {
+            assertEquals(str, value, parser.getDouble(), 0);
+            if (type != JsonType.DOUBLE) {
+                assertEquals(str, (long) value, parser.getLong());
+            }
+        }
+    }
+
+    public void testDoubles() {
+        checkDouble("0.1");
+        checkDouble("0.3");
+        checkDouble("3.141592653589793");
+        checkDouble("2.2250738585072014E-308");
+        checkDouble("4.9E-324");
+        checkDouble("1.7976931348623157E308");
+        checkDouble("9007199254740993.0");
+        checkDouble("123456789012345678901234567890.5");
+        checkDouble("0.000000000000000000000000000001");
+        Random random = new Random(1234);
+        for (int i = 0; i < 100000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                continue;
+            }
+            checkDouble(Double.toString(d));
+        }
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder buf = new StringBuilder();
+            buf.append(random.nextInt(1000000));
+            buf.append('.');
+            buf.append(random.nextInt(1000000));
+            if (random.nextBoolean()) {
+                buf.append('e').append(random.nextInt(60) - 30);
+            }
+            checkDouble(buf.toString());
+        }
+    }
+
+}
@@ -123,4 +123,15 @@ public class JsonObjectTest extends TestCase {
         assertEquals((long) value, o.getLong("a", 123));
     }
 
+    public void testWriteTo() throws Exception {
+        MyList obj = new MyList().setTitle("A \"title\"\n");
+        List<MyValue> list = new ArrayList<JsonObjectTest.MyValue>();
+        list.add(new MyValue(1));
+        list.add(new MyValue(2));
+        obj.setList(list);
+        StringBuilder buf = new StringBuilder();
+        obj.writeTo(buf);
+        assertEquals(obj.toString(), buf.toString());
+    }
+
 }
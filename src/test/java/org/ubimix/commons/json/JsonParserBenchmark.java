@@ -0,0 +1,195 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.io.UnsupportedEncodingException;
+
+import org.ubimix.commons.json.io.CompactJsonParser;
+import org.ubimix.commons.json.io.CompactJsonSerializer;
+import org.ubimix.commons.json.io.Utf8JsonParser;
+
+/**
+ * A simple benchmark measuring the parsing time per character (or per byte
+ * for binary inputs). It is not a unit test; run it as a java application.
+ * 
+ * @author kotelnikov
+ */
+public class JsonParserBenchmark {
+
+    private static final int ITERATIONS = 50;
+
+    private static final int WARMUP = 20;
+
+    public static void main(String[] args) throws Exception {
+        JsonParserBenchmark benchmark = new JsonParserBenchmark();
+        benchmark.run("records", newDocument(0, true));
+        benchmark.run("strings", newDocument(0, false));
+        benchmark.run("indented strings", newDocument(4, false));
+        benchmark.runUtf8("utf-8 records", newDocument(0, true));
+        benchmark.runUtf8("utf-8 long strings", newTextDocument());
+        benchmark.runTree("tree records", newDocument(0, true));
+        benchmark.runCompact("compact tree records", newDocument(0, true));
+    }
+
+    /**
+     * Generates a document containing an array of records.
+     * 
+     * @param ident the indentation used to serialize the document
+     * @param numbers if this flag is <code>true</code> then records contain
+     *        numeric and boolean fields
+     * @return a newly created JSON document
+     */
+    protected static String newDocument(int ident, boolean numbers) {
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < 10000; i++) {
+            JsonObject obj = new JsonObject();
+            obj.setValue("name", "Record number " + i);
+            obj.setValue("description", "This is a \"quoted\" text\nwith an "
+                + "escaped new line and some unicode characters: été");
+            obj.setValue("tags", JsonArray.toJsonArray("a", "b", "c"));
+            if (numbers) {
+                obj.setValue("id", i);
+                obj.setValue("timestamp", 1300000000000L + i);
+                obj.setValue("value", i / 7.0);
+                obj.setValue("enabled", (i % 2) == 0);
+            }
+            array.addValue(obj);
+        }
+        final StringBuilder buf = new StringBuilder();
+        JsonSerializer serializer = new JsonSerializer(ident) {
+            @Override
+            protected void print(String string) {
+                buf.append(string);
+            }
+        };
+        new JsonObjectVisitor().visit(array.getJsonObject(), serializer);
+        return buf.toString();
+    }
+
+    /**
+     * Generates a document containing records with long ASCII strings
+     * without escaped characters.
+     * 
+     * @return a newly created JSON document
+     */
+    protected static String newTextDocument() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < 1000; i++) {
+            JsonObject obj = new JsonObject();
+            obj.setValue("name", "Record number " + i);
+            obj.setValue("text", text.toString());
+            array.addValue(obj);
+        }
+        return array.toString();
+    }
+
+    protected void parse(String str) {
+        new JsonParser().parse(str, new JsonListener());
+    }
+
+    protected void parseCompact(byte[] array) {
+        new CompactJsonParser().parse(array);
+    }
+
+    protected void parseTree(String str) {
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        new JsonParser().parse(str, builder);
+    }
+
+    protected void parseUtf8(byte[] array) {
+        new Utf8JsonParser().parse(array, new JsonListener());
+    }
+
+    public void run(final String name, final String str) {
+        run(name, str.length(), "char", new Runnable() {
+            public void run() {
+                parse(str);
+            }
+        });
+    }
+
+    /**
+     * Runs the given task and prints the time per unit of the input.
+     * 
+     * @param name the name of the benchmark
+     * @param length the length of the input
+     * @param unit the name of the input unit
+     * @param task the task to measure
+     */
+    protected void run(String name, int length, String unit, Runnable task) {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+        long time = System.nanoTime() - start;
+        double perUnit = (double) time / ITERATIONS / length;
+        System.out.println(String.format(
+            "%s: %d %ss, %.2f ns/%s, %.1f Mb/s, %.2f ms/document",
+            name,
+            length,
+            unit,
+            perUnit,
+            unit,
+            1000 / perUnit,
+            time / ITERATIONS / 1e6));
+    }
+
+    /**
+     * Measures the time required to rebuild the tree of the given document
+     * from its compact binary form (see {@link CompactJsonSerializer}).
+     */
+    public void runCompact(String name, String str) {
+        Object tree = JsonAccessor.getInstance().parse(str);
+        CompactJsonSerializer serializer = new CompactJsonSerializer();
+        new JsonObjectVisitor().visit(tree, serializer);
+        final byte[] array = serializer.toByteArray();
+        run(name, array.length, "byte", new Runnable() {
+            public void run() {
+                parseCompact(array);
+            }
+        });
+    }
+
+    /**
+     * Measures the time required to build the tree of the given document.
+     */
+    public void runTree(final String name, final String str) {
+        run(name, str.length(), "char", new Runnable() {
+            public void run() {
+                parseTree(str);
+            }
+        });
+    }
+
+    public void runUtf8(String name, String str)
+        throws UnsupportedEncodingException {
+        final byte[] array = str.getBytes("UTF-8");
+        run(name, array.length, "byte", new Runnable() {
+            public void run() {
+                parseUtf8(array);
+            }
+        });
+    }
+
+}
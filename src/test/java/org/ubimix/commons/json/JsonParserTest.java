@@ -12,6 +12,8 @@
  */
 package org.ubimix.commons.json;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 import junit.framework.TestCase;
@@ -105,6 +107,70 @@ public class JsonParserTest extends TestCase {
         }
     }
 
+    /**
+     * This listener records all received character sequences and checks that
+     * property names are not changed until the end of the property.
+     */
+    protected static class TestSequenceListener extends TestListener
+        implements
+        IJsonCharSequenceListener {
+
+        private final Stack<String> fKeys = new Stack<String>();
+
+        protected TestSequenceListener(StringBuffer buf) {
+            super(buf);
+        }
+
+        public void beginObjectProperty(CharSequence property) {
+            assertFalse(property instanceof String);
+            String key = property.toString();
+            fKeys.push(key);
+            beginObjectProperty(key);
+        }
+
+        public void endObjectProperty(CharSequence property) {
+            String key = fKeys.pop();
+            assertEquals(key, property.toString());
+            endObjectProperty(key);
+        }
+
+        public void onValue(CharSequence value) {
+            assertFalse(value instanceof String);
+            onValue(value.toString());
+        }
+    }
+
+    /**
+     * This parser uses the default implementation of the
+     * {@link AbstractJsonParser#readText(char, byte, TextBuffer)} method.
+     */
+    protected static class TestParser extends AbstractJsonParser {
+
+        private int fPos;
+
+        private String fStr;
+
+        @Override
+        protected char getChar() {
+            return fPos < fStr.length() ? fStr.charAt(fPos) : 0;
+        }
+
+        @Override
+        protected boolean incPos() {
+            if (fPos >= fStr.length()) {
+                return false;
+            }
+            fPos++;
+            return true;
+        }
+
+        public void parse(String str, IJsonListener listener) {
+            fStr = str;
+            fPos = 0;
+            doParse(listener);
+        }
+    }
+
     /**
      * @param name
      */
@@ -165,6 +231,10 @@ public class JsonParserTest extends TestCase {
         test("{ x: [ y ", "{<x>[(y)]</x>}");
         test(" qdsgqsdg { x: [ y ", "{<x>[(y)]</x>}");
         test(" { [x, y] }", "{}");
+        // Mismatched brackets and empty names should not stop the parser
+        test("[}", "[]");
+        test("{a:[}]}", "{<a>[]</a>}");
+        test("[{\"\":1}]", "[({<>1</>})]");
         test(
             "{first: { name: [x, y] }}",
             "{<first>{<name>[(x),(y)]</name>}</first>}");
@@ -207,6 +277,175 @@ public class JsonParserTest extends TestCase {
         parser.parse(str, new TestListener(buf));
         System.out.println(str + " => " + buf);
         assertEquals(control, buf.toString());
+
+        buf.delete(0, buf.length());
+        parser.parse(str, new TestSequenceListener(buf));
+        assertEquals(control, buf.toString());
+
+        buf.delete(0, buf.length());
+        new TestParser().parse(str, new TestSequenceListener(buf));
+        assertEquals(control, buf.toString());
+    }
+
+    public void testObjectSizes() {
+        final List<Integer> sizes = new ArrayList<Integer>();
+        JsonAccessor accessor = new JsonAccessor() {
+            @Override
+            public Object newObject() {
+                sizes.add(0);
+                return super.newObject();
+            }
+
+            @Override
+            public Object newObject(int size) {
+                sizes.add(size);
+                return super.newObject(size);
+            }
+        };
+        String str = "[{a:1,b:2,c:{}},{a:3,b:4,c:{x:5}},{a:6}]";
+        JsonObjectBuilder builder = new JsonObjectBuilder(accessor);
+        new JsonParser().parse(str, builder);
+        assertEquals(JsonAccessor.getInstance().parse(str), builder.getTop());
+        // The size is given only when it is known from a previous object
+        assertEquals("[0, 0, 3, 0, 3]", sizes.toString());
+    }
+
+    public void testParseNext() {
+        String str = "{\"a\":1}\n{\"b\":[2,3]}\n\n [4] {c:{d:5}}\n";
+        JsonParser parser = new JsonParser().reset(str);
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        List<String> docs = new ArrayList<String>();
+        while (parser.parseNext(builder)) {
+            docs.add(builder.toString());
+            builder.reset();
+        }
+        assertEquals(4, docs.size());
+        assertEquals("{a=1}", docs.get(0));
+        assertEquals("{b=[2, 3]}", docs.get(1));
+        assertEquals("[4]", docs.get(2));
+        assertEquals("{c={d=5}}", docs.get(3));
+        assertFalse(parser.parseNext(builder));
+
+        parser.reset("");
+        assertFalse(parser.parseNext(builder));
+    }
+
+    public void testReset() {
+        String str = "{\"name\":[{\"key\":\"value\"}]}";
+        JsonParser parser = new JsonParser().reset(str);
+        TextBuffer key = null;
+        TextBuffer value = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END) {
+            if (token == JsonToken.PROPERTY) {
+                key = (TextBuffer) parser.getText();
+            } else if (token == JsonToken.STRING) {
+                value = (TextBuffer) parser.getText();
+                break;
+            }
+        }
+        assertEquals(11, key.getSourceOffset(str));
+        assertEquals(17, value.getSourceOffset(str));
+        // Buffers should not keep the previous text
+        parser.reset("");
+        assertEquals(0, key.length());
+        assertEquals(0, value.length());
+    }
+
+    public void testShapes() {
+        final List<String> names = new ArrayList<String>();
+        JsonListener listener = new JsonListener() {
+            @Override
+            public void beginObjectProperty(String property) {
+                names.add(property);
+            }
+        };
+        final List<String> interned = new ArrayList<String>();
+        JsonParser parser = new JsonParser();
+        parser.setSymbolTable(new JsonSymbolTable() {
+            @Override
+            public String intern(CharSequence str) {
+                interned.add(str.toString());
+                return super.intern(str);
+            }
+        });
+        String str = "[{id:1,name:a,tags:{x:1}},{id:2,name:b,tags:{x:2}},"
+            + "{id:3,extra:c,name:d},{id:4,\"n\\u0061me\":e},{}]";
+        parser.parse(str, listener);
+        assertEquals("[id, name, tags, x, id, name, tags, x, "
+            + "id, extra, name, id, name]", names.toString());
+        // Only names which differ from the previous object are looked up
+        assertEquals(
+            "[id, name, tags, x, extra, name, name]",
+            interned.toString());
+        assertSame(names.get(1), names.get(12));
+
+        // Objects are the same as without shapes
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        parser.parse(str, builder);
+        assertEquals("[{id=1, name=a, tags={x=1}}, {id=2, name=b, "
+            + "tags={x=2}}, {id=3, extra=c, name=d}, {id=4, name=e}, {}]",
+            builder.toString());
+    }
+
+    public void testSkipValue() {
+        final StringBuilder buf = new StringBuilder();
+        final JsonParser parser = new JsonParser();
+        JsonListener listener = new JsonListener() {
+            @Override
+            public void beginArray() {
+                buf.append("[");
+                if (buf.toString().endsWith("skipArray:[")) {
+                    parser.skipValue();
+                }
+            }
+
+            @Override
+            public void beginObject() {
+                buf.append("{");
+            }
+
+            @Override
+            public void beginObjectProperty(String property) {
+                buf.append(property).append(":");
+                if (property.startsWith("skip")
+                    && !"skipArray".equals(property)) {
+                    parser.skipValue();
+                }
+            }
+
+            @Override
+            public void endArray() {
+                buf.append("]");
+            }
+
+            @Override
+            public void endObject() {
+                buf.append("}");
+            }
+
+            @Override
+            public void endObjectProperty(String property) {
+                buf.append(";");
+            }
+
+            @Override
+            public void onValue(int value) {
+                buf.append(value);
+                // Has no effect for values already read
+                parser.skipValue();
+            }
+
+            @Override
+            public void onValue(String value) {
+                buf.append(value);
+            }
+        };
+        parser.parse("{a:1, skip1:{x:[1,'}]',\"\\\"]\"]}, b:2, "
+            + "skip2:'x,}', skip3:abc\\,d, skip4:[[{}], ']'], "
+            + "skipArray:[1,{c:'['},{}], c:[it's, x], skip5, d:3}", listener);
+        assertEquals("{a:1;skip1:;b:2;skip2:;skip3:;skip4:;"
+            + "skipArray:[];c:[it'sx];skip5:;d:3;}", buf.toString());
     }
 
     public void testPrintQuery() {
@@ -237,6 +476,9 @@ public class JsonParserTest extends TestCase {
             "{ x:'a\n\n  b\n  c\n'}",
             "{\"x\":\"a\\n\\n  b\\n  c\\n\"}");
         testSerialization("{\"x\":\"\\u003Cfoo\\u003E\"}", "{\"x\":\"<foo>\"}");
+        testSerialization(
+            "{\"a\\\"b\":\"\\u0001\\t\\\\x\\\"y\\u001F\\r\\f/\u00e9\"}",
+            "{\"a\\\"b\":\"\\u0001\\t\\\\x\\\"y\\u001f\\r\\f/\u00e9\"}");
         testSerialization("{\"rdf:RDF\":["
             + "{\"rdf:id\":\"toto:model\"},"
             + "{"
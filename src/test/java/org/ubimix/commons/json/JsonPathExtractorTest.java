@@ -0,0 +1,122 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.io.JsonStreamParser;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonPathExtractorTest extends TestCase {
+
+    private static class TestListener
+        implements
+        JsonPathExtractor.IPathListener {
+
+        private final List<String> fResults = new ArrayList<String>();
+
+        public void onValue(String path, Object value) {
+            fResults.add(path + "=" + value);
+        }
+
+        @Override
+        public String toString() {
+            return fResults.toString();
+        }
+    }
+
+    private static final String DOC = "{"
+        + "\"meta\":{\"id\":12,\"type\":\"order\",\"tags\":[\"a\",\"b\"]},"
+        + "\"items\":["
+        + "{\"price\":1.5,\"name\":\"x\",\"sub\":{\"price\":100}},"
+        + "{\"name\":\"y\",\"price\":2},"
+        + "{\"name\":\"z\"}"
+        + "],"
+        + "\"a/b\":{\"~c\":true},"
+        + "\"payload\":{\"big\":[1,2,3,{\"id\":13}]}"
+        + "}";
+
+    /**
+     * @param name
+     */
+    public JsonPathExtractorTest(String name) {
+        super(name);
+    }
+
+    public void test() {
+        test("[/meta/id=12]", "/meta/id");
+        test("[/items/*/price=1.5, /items/*/price=2]", "/items/*/price");
+        test("[/items/1/name=y]", "/items/1/name");
+        test("[/meta/tags=[a, b]]", "/meta/tags");
+        test("[/a~1b/~0c=true]", "/a~1b/~0c");
+        test("[]", "/unknown");
+        test("[/items/0/name=x, /items/*/name=x, "
+            + "/items/*/name=y, /items/*/name=z]",
+            "/items/0/name",
+            "/items/*/name");
+        test("[/meta/type=order, /meta={id=12, type=order, tags=[a, b]}]",
+            "/meta",
+            "/meta/type");
+        test("[/payload/*/3/id=13]", "/payload/*/3/id");
+        test("[/*/id=12]", "/*/id");
+    }
+
+    private void test(String control, String... paths) {
+        JsonPathExtractor extractor = new JsonPathExtractor(paths);
+        TestListener listener = new TestListener();
+        extractor.extract(DOC, listener);
+        assertEquals(control, listener.toString());
+    }
+
+    public void testSkip() throws Exception {
+        final List<String> keys = new ArrayList<String>();
+        JsonStreamParser parser = new JsonStreamParser() {
+            @Override
+            protected JsonToken nextToken() {
+                JsonToken token = super.nextToken();
+                if (token == JsonToken.PROPERTY) {
+                    keys.add(getPropertyName());
+                }
+                return token;
+            }
+        };
+        JsonPathExtractor extractor = new JsonPathExtractor("/meta/id");
+        TestListener listener = new TestListener();
+        parser.parse(
+            new StringReader(DOC),
+            extractor.newListener(parser, listener));
+        assertEquals("[/meta/id=12]", listener.toString());
+        // Properties of skipped values are not read
+        assertEquals("[meta, id, type, tags, items, a/b, payload]", keys
+            .toString());
+    }
+
+    public void testWrongPath() {
+        try {
+            new JsonPathExtractor("meta");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
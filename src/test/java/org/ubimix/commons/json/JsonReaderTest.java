@@ -0,0 +1,173 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonReaderTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public JsonReaderTest(String name) {
+        super(name);
+    }
+
+    private String read(String str) {
+        StringBuilder buf = new StringBuilder();
+        JsonReader reader = new JsonReader(str);
+        JsonToken token;
+        while ((token = reader.nextToken()) != JsonToken.END) {
+            buf.append(token);
+            String value = reader.getString();
+            if (value != null) {
+                buf.append("(").append(value).append(")");
+            }
+            buf.append(" ");
+        }
+        return buf.toString().trim();
+    }
+
+    public void testMalformed() {
+        String[] docs = {
+            "[}",
+            "{a:[}]}",
+            "[{\"\":1}]",
+            "[{:1}]",
+            "{a:]}",
+            "[{\"a\"[}]",
+            "{\"\":{'':[]}}" };
+        for (String str : docs) {
+            JsonReader reader = new JsonReader(str);
+            int count = 0;
+            while (reader.nextToken() != JsonToken.END) {
+                // Each token moves the reader forward
+                assertTrue(str, ++count <= str.length() * 2);
+            }
+            assertEquals(0, reader.getDepth());
+        }
+        assertEquals("BEGIN_ARRAY END_ARRAY", read("[}"));
+        assertEquals(
+            "BEGIN_OBJECT PROPERTY(a) BEGIN_ARRAY END_ARRAY END_OBJECT",
+            read("{a:[}]}"));
+        assertEquals("BEGIN_ARRAY BEGIN_OBJECT PROPERTY() INTEGER(1) "
+            + "END_OBJECT END_ARRAY", read("[{\"\":1}]"));
+    }
+
+    public void testSkipChildren() {
+        JsonReader reader = new JsonReader(
+            "{a:[1,{b:[2,3]},4],b:{c:{d:5}},c:6,d:'x'}");
+        assertEquals(JsonToken.BEGIN_OBJECT, reader.nextToken());
+        int c = 0;
+        String d = null;
+        while (reader.nextToken() == JsonToken.PROPERTY) {
+            String name = reader.getString();
+            reader.nextToken();
+            if ("c".equals(name)) {
+                c = reader.getInt();
+            } else if ("d".equals(name)) {
+                d = reader.getString();
+            } else {
+                JsonToken token = reader.getToken();
+                assertEquals(1, reader.getDepth() - 1);
+                JsonToken end = reader.skipChildren();
+                assertEquals(
+                    token == JsonToken.BEGIN_ARRAY
+                        ? JsonToken.END_ARRAY
+                        : JsonToken.END_OBJECT,
+                    end);
+                assertEquals(1, reader.getDepth());
+            }
+        }
+        assertEquals(JsonToken.END_OBJECT, reader.getToken());
+        assertEquals(JsonToken.END, reader.nextToken());
+        assertEquals(6, c);
+        assertEquals("x", d);
+    }
+
+    public void testSkipRaw() {
+        final int[] count = { 0 };
+        JsonParser parser = new JsonParser() {
+            @Override
+            protected JsonToken nextToken() {
+                count[0]++;
+                return super.nextToken();
+            }
+        };
+        parser.reset("[{a:[1,'x]}',{b:\"\\\"{\"}],c:\\}}, 2]");
+        JsonReader reader = new JsonReader(parser);
+        assertEquals(JsonToken.BEGIN_ARRAY, reader.nextToken());
+        assertEquals(JsonToken.BEGIN_OBJECT, reader.nextToken());
+        count[0] = 0;
+        assertEquals(JsonToken.END_OBJECT, reader.skipChildren());
+        // The content is skipped without reading tokens
+        assertEquals(1, count[0]);
+        assertEquals(1, reader.getDepth());
+        assertEquals(JsonToken.INTEGER, reader.nextToken());
+        assertEquals(2, reader.getInt());
+        assertEquals(JsonToken.END_ARRAY, reader.nextToken());
+        assertEquals(JsonToken.END, reader.nextToken());
+    }
+
+    public void testTokens() {
+        assertEquals("", read(""));
+        // Only objects and arrays are accepted as top-level values
+        assertEquals("", read("123"));
+        assertEquals("BEGIN_ARRAY NULL END_ARRAY", read("abc [null]"));
+        assertEquals("BEGIN_ARRAY "
+            + "INTEGER(1) "
+            + "LONG(12345678901) "
+            + "DOUBLE(1.5) "
+            + "BOOLEAN(true) "
+            + "NULL "
+            + "STRING(x y) "
+            + "END_ARRAY", read("[1, 12345678901, 1.5, true, null, 'x y']"));
+        assertEquals("BEGIN_OBJECT "
+            + "PROPERTY(a) BEGIN_ARRAY BEGIN_OBJECT END_OBJECT END_ARRAY "
+            + "PROPERTY(b) STRING(c\nd) "
+            + "END_OBJECT", read("{\"a\":[{}],b:\"c\\nd\"}"));
+    }
+
+    public void testValues() {
+        JsonReader reader = new JsonReader("[12, 3000000000, 2.5, false]");
+        assertNull(reader.getToken());
+        assertEquals(0, reader.getDepth());
+        assertEquals(JsonToken.BEGIN_ARRAY, reader.nextToken());
+        assertEquals(1, reader.getDepth());
+        assertEquals(JsonToken.INTEGER, reader.nextToken());
+        assertEquals(12, reader.getInt());
+        assertEquals(12L, reader.getLong());
+        assertEquals(12.0, reader.getDouble());
+        assertEquals("12", reader.getText().toString());
+        assertEquals(JsonToken.LONG, reader.nextToken());
+        assertEquals(3000000000L, reader.getLong());
+        assertEquals(JsonToken.DOUBLE, reader.nextToken());
+        assertEquals(2.5, reader.getDouble());
+        assertEquals(2, reader.getInt());
+        assertEquals(JsonToken.BOOLEAN, reader.nextToken());
+        assertFalse(reader.getBoolean());
+        assertEquals(0, reader.getInt());
+        assertEquals(JsonToken.END_ARRAY, reader.nextToken());
+        assertEquals(0, reader.getDepth());
+        assertEquals(JsonToken.END, reader.nextToken());
+        assertEquals(JsonToken.END, reader.nextToken());
+    }
+
+}
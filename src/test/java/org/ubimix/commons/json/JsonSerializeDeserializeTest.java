@@ -16,8 +16,12 @@
  * ************************************************************************** */
 package org.ubimix.commons.json;
 
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.ubimix.commons.json.IJsonAccessor.JsonType;
+
 /**
  * @author kotelnikov
  */
@@ -191,6 +195,59 @@ public class JsonSerializeDeserializeTest extends TestCase {
         test(2, str, control);
     }
 
+    public void testLazyNumbers() {
+        String str = "[1.50,1e400,12345678901234567890,0.1,7,-3]";
+        final StringBuffer buf = new StringBuffer();
+        JsonSerializer serializer = new JsonSerializer() {
+            @Override
+            protected void print(String string) {
+                buf.append(string);
+            }
+        };
+
+        // Numbers are converted by default
+        JsonParser parser = new JsonParser();
+        parser.parse(str, serializer);
+        assertEquals(
+            "[1.5,Infinity,1.2345678901234567E19,0.1,7,-3]",
+            buf.toString());
+
+        // Numbers are copied as is in the "lazy" mode
+        buf.setLength(0);
+        parser.setLazyNumbers(true);
+        parser.parse(str, serializer);
+        assertEquals(str, buf.toString());
+
+        // Builders keep the text of numbers
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        parser.parse(str, builder);
+        List<?> list = (List<?>) builder.getTop();
+        assertEquals(new JsonNumber("1.50"), list.get(0));
+        JsonArray array = JsonArray.newValue(list);
+        assertEquals(1.5, array.getDouble(0, 0));
+        assertEquals(7, array.getInteger(4, 0));
+        assertEquals(-3, array.getInteger(5, 0));
+        assertEquals(0, array.getInteger(0, 0));
+
+        // Lazy numbers are compared by their text, not by their values
+        assertEquals(JsonType.DOUBLE, new JsonNumber("1e400").getType());
+        assertFalse(new JsonNumber("1.0").equals(1.0));
+        assertFalse(new JsonNumber("1.0").equals(new JsonNumber("1")));
+        assertEquals(1.0, new JsonNumber("1.0").doubleValue());
+        JsonObjectBuilder eager = new JsonObjectBuilder();
+        new JsonParser().parse(str, eager);
+        assertFalse(list.equals(eager.getTop()));
+
+        buf.setLength(0);
+        new JsonObjectVisitor().visit(builder.getTop(), serializer);
+        assertEquals(str, buf.toString());
+
+        // Non-standard numbers are normalized
+        buf.setLength(0);
+        parser.parse("{a:+1,b:.5}", serializer);
+        assertEquals("{\"a\":1,\"b\":0.5}", buf.toString());
+    }
+
     public void testOrdered() {
         testOrdered(
             "{d:D,c:C,b:B,a:A}",
@@ -200,6 +257,28 @@ public class JsonSerializeDeserializeTest extends TestCase {
             "{\"first\":false,\"price\":123,\"second\":\"Hello, there\"}");
     }
 
+    public void testReuse() {
+        JsonParser parser = new JsonParser();
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        String[] docs = {
+            "{a:[1,{b:[2,[3]]}],c:{}}",
+            "[{x:1},[],[[y]]]",
+            "{a:[1,{b:[2,[3]]}],c:{}}" };
+        for (String str : docs) {
+            parser.parse(str, builder);
+            Object obj = builder.getTop();
+            builder.reset();
+            assertEquals(JsonAccessor.getInstance().parse(str), obj);
+        }
+
+        // Parsers of the accessor are re-used
+        JsonAccessor accessor = new JsonAccessor();
+        Object first = accessor.parse("{a:[1,2],b:{c:d}}");
+        Object second = accessor.parse("{a:[1,2],b:{c:d}}");
+        assertEquals(first, second);
+        assertNotSame(first, second);
+    }
+
     private void testOrdered(String str, String control) {
         JsonParser parser = new JsonParser();
         JsonObjectBuilder util = new JsonObjectBuilder();
@@ -0,0 +1,90 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonSymbolTableTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public JsonSymbolTableTest(String name) {
+        super(name);
+    }
+
+    public void testIntern() {
+        JsonSymbolTable table = new JsonSymbolTable(16, 8);
+        String first = table.intern(new StringBuilder("name"));
+        assertEquals("name", first);
+        assertSame(first, table.intern(new StringBuilder("name")));
+        assertSame(first, table.intern("name"));
+        assertNotSame(first, table.intern("names"));
+
+        StringBuilder str = new StringBuilder("a very long name");
+        assertNotSame(table.intern(str), table.intern(str));
+
+        // The table is bounded: old symbols are replaced by new ones
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("k" + i, table.intern("k" + i));
+        }
+        assertEquals("name", table.intern("name"));
+
+        table.clear();
+        assertNotSame(first, table.intern("name"));
+    }
+
+    public void testParser() {
+        final List<String> keys = new ArrayList<String>();
+        JsonListener listener = new JsonListener() {
+            @Override
+            public void beginObjectProperty(String property) {
+                keys.add(property);
+            }
+        };
+        JsonParser parser = new JsonParser();
+        parser.parse("[{id:1,\"name\":a},{\"id\":2,name:b}]", listener);
+        assertEquals(4, keys.size());
+        assertSame(keys.get(0), keys.get(2));
+        assertSame(keys.get(1), keys.get(3));
+
+        keys.clear();
+        parser.setSymbolTable(null);
+        parser.parse("[{id:1},{id:2}]", listener);
+        assertEquals(keys.get(0), keys.get(1));
+        assertNotSame(keys.get(0), keys.get(1));
+        assertNull(parser.getSymbolTable());
+
+        // The default table is created when it is required
+        parser = new JsonParser();
+        parser.parse("[1,2]", listener);
+        JsonSymbolTable symbols = parser.getSymbolTable();
+        assertNotNull(symbols);
+        assertSame(symbols.intern("id"), symbols.intern(new StringBuilder(
+            "id")));
+        keys.clear();
+        parser.parse("{id:1}", listener);
+        assertSame(symbols.intern("id"), keys.get(0));
+    }
+
+}
@@ -0,0 +1,105 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonTapeTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public JsonTapeTest(String name) {
+        super(name);
+    }
+
+    public void test() {
+        test("");
+        test("{}");
+        test("[]");
+        test("{a:null, b, c:}");
+        test("[1, 12345678901, 0.5, -3e2, true, false, null, 'x y', abc]");
+        test("{\"x\":\"a\\nb\\u0041\", \"y\\\"z\":[{}, [[]], {a:[1]}]}");
+        test("  {  'A'  :  { 'x' : 'X' } , y:Y, \"z\" : Z  }  ");
+        test("{first: { name: [x, y, {first: { name: [x, y] } } ] }}");
+        test("{\"name\":\"Маша été\"}");
+        test("{a:[1,2");
+        test("{a:1, b:[2], a:{x:3, x:4}, c:5, b:6, a:7}");
+        test("{'a\\u0062':1, ab:2, 'a\\'':3, \"a'\":4}");
+    }
+
+    private void test(String str) {
+        Object control = JsonAccessor.getInstance().parse(str);
+        JsonTape tape = new JsonTape(str);
+        Object root = tape.getRoot();
+        assertEquals(control, root);
+        if (root != null) {
+            assertEquals(root, control);
+            assertEquals(control.toString(), root.toString());
+            assertEquals(control.hashCode(), root.hashCode());
+        }
+    }
+
+    public void testLookup() {
+        String str = "{\"id\":12,\"items\":[{\"v\":1},{\"v\":2},{\"v\":3}],"
+            + "\"id\":13,\"name\":\"x\\\"y\",\"flag\":true}";
+        JsonTape tape = new JsonTape(str);
+        JsonObject obj = JsonObject.newValue(tape.getRoot());
+        // The last value of the property is used
+        assertEquals(13, obj.getInteger("id", 0));
+        assertEquals("x\"y", obj.getString("name"));
+        assertTrue(obj.getBoolean("flag", false));
+        assertNull(obj.getString("unknown"));
+
+        JsonArray items = obj.getArray("items", false);
+        assertEquals(3, items.getSize());
+        assertEquals(3, items.getObject(2, JsonObject.FACTORY).getInteger(
+            "v",
+            0));
+        assertEquals(1, items.getObject(0, JsonObject.FACTORY).getInteger(
+            "v",
+            0));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) tape.getRoot();
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = map.keySet().iterator(); it.hasNext();) {
+            keys.add(it.next());
+        }
+        // Duplicates are merged into the first occurrence of the property
+        assertEquals("[id, items, name, flag]", keys.toString());
+        assertEquals(4, map.size());
+        assertEquals(13, ((Number) map.get("id")).intValue());
+        Map.Entry<String, Object> first = map.entrySet().iterator().next();
+        assertEquals("id", first.getKey());
+        assertEquals(13, ((Number) first.getValue()).intValue());
+        try {
+            map.put("a", "b");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+}
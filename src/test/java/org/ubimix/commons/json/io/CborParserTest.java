@@ -0,0 +1,159 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class CborParserTest extends TestCase {
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    private static byte[] toBytes(String hex) {
+        hex = hex.replace(" ", "");
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(
+                hex.substring(i * 2, i * 2 + 2),
+                16);
+        }
+        return result;
+    }
+
+    /**
+     * @param name
+     */
+    public CborParserTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Examples from the appendix A of the RFC 8949.
+     */
+    public void test() {
+        test("00", "0");
+        test("17", "23");
+        test("1818", "24");
+        test("1903e8", "1000");
+        test("1a000f4240", "1000000");
+        test("1b000000e8d4a51000", "1000000000000");
+        test("1bffffffffffffffff", "1.8446744073709552E19");
+        test("c249010000000000000000", "1.8446744073709552E19");
+        test("3bffffffffffffffff", "-1.8446744073709552E19");
+        test("c349010000000000000000", "-1.8446744073709552E19");
+        test("20", "-1");
+        test("29", "-10");
+        test("3903e7", "-1000");
+        test("f90000", "0.0");
+        test("f98000", "-0.0");
+        test("f93c00", "1.0");
+        test("fb3ff199999999999a", "1.1");
+        test("f97bff", "65504.0");
+        test("fa47c35000", "100000.0");
+        test("f90001", "5.9604644775390625E-8");
+        test("f9c400", "-4.0");
+        test("fbc010666666666666", "-4.1");
+        test("f97c00", "null");
+        test("f97e00", "null");
+        test("fa7f800000", "null");
+        test("f4", "false");
+        test("f5", "true");
+        test("f6", "null");
+        test("f7", "null");
+        test("f0", "null");
+        test("c11a514b67b0", "1363896240");
+        test("4401020304", "\"AQIDBA\"");
+        test("60", "\"\"");
+        test("6161", "\"a\"");
+        test("6449455446", "\"IETF\"");
+        test("62225c", "\"\\\"\\\\\"");
+        test("62c3bc", "\"ü\"");
+        test("63e6b0b4", "\"水\"");
+        test("64f0908591", "\"𐅑\"");
+        test("80", "[]");
+        test("83010203", "[1,2,3]");
+        test("8301820203820405", "[1,[2,3],[4,5]]");
+        test("a0", "{}");
+        test("a201020304", "{\"1\":2,\"3\":4}");
+        test("a26161016162820203", "{\"a\":1,\"b\":[2,3]}");
+        test("826161a161626163", "[\"a\",{\"b\":\"c\"}]");
+        test("5f42010243030405ff", "\"AQIDBAU\"");
+        test("7f657374726561646d696e67ff", "\"streaming\"");
+        test("9fff", "[]");
+        test("9f018202039f0405ffff", "[1,[2,3],[4,5]]");
+        test("9f01820203820405ff", "[1,[2,3],[4,5]]");
+        test("83018202039f0405ff", "[1,[2,3],[4,5]]");
+        test("bf61610161629f0203ffff", "{\"a\":1,\"b\":[2,3]}");
+        test("826161bf61626163ff", "[\"a\",{\"b\":\"c\"}]");
+        test("bf6346756ef563416d7421ff", "{\"Fun\":true,\"Amt\":-2}");
+    }
+
+    private void test(String hex, String control) {
+        // Top-level values are wrapped in arrays
+        byte[] array = toBytes("81" + hex);
+        TestSerializer serializer = new TestSerializer();
+        new CborParser().parse(array, serializer);
+        assertEquals("[" + control + "]", serializer.toString());
+    }
+
+    public void testBuilder() {
+        byte[] array = toBytes("a2 6269641903e8 646e616d65 82 6161 f6");
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        new CborParser().parse(array, builder);
+        assertEquals(
+            JsonAccessor.getInstance().parse("{id:1000,name:['a',null]}"),
+            builder.getTop());
+    }
+
+    public void testMalformed() {
+        testMalformed("830102");
+        testMalformed("9f0102");
+        testMalformed("6461");
+        testMalformed("ff");
+        testMalformed("1c");
+        testMalformed("a1810102");
+        testMalformed("7f6161f5ff");
+    }
+
+    private void testMalformed(String hex) {
+        try {
+            new CborParser().parse(toBytes(hex), new TestSerializer());
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
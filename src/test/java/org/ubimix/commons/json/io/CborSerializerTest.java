@@ -0,0 +1,91 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonParser;
+
+/**
+ * @author kotelnikov
+ */
+public class CborSerializerTest extends TestCase {
+
+    static String toHex(byte[] array) {
+        StringBuilder buf = new StringBuilder();
+        for (byte b : array) {
+            String str = Integer.toHexString(b & 0xFF);
+            if (str.length() < 2) {
+                buf.append('0');
+            }
+            buf.append(str);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * @param name
+     */
+    public CborSerializerTest(String name) {
+        super(name);
+    }
+
+    public void test() throws Exception {
+        test("{a:1,b:[2,3]}", "bf61610161629f0203ffff");
+        test("[0,23,24,1000,-1,-1000]", "9f0017181819"
+            + "03e8203903e7ff");
+        test("[1000000000000,-1000000000000]", "9f1b000000e8d4a51000"
+            + "3b000000e8d4a50fffff");
+        test("[true,false,null,1.5,1.1]", "9ff5f4f6fa3fc00000"
+            + "fb3ff199999999999aff");
+        test("['','IETF','ü水😀']", "9f606449455446"
+            + "69c3bce6b0b4f09f9880ff");
+        test("{}", "bfff");
+        test("[[],[[]]]", "9f9fff9f9fffffff");
+    }
+
+    private void test(String json, String hex) throws Exception {
+        Object obj = JsonAccessor.getInstance().parse(json);
+        CborSerializer serializer = new CborSerializer();
+        new JsonObjectVisitor().visit(obj, serializer);
+        assertEquals(hex, toHex(serializer.toByteArray()));
+
+        // Direct transformation of JSON in CBOR
+        serializer.reset();
+        new JsonParser().parse(json, serializer);
+        assertEquals(hex, toHex(serializer.toByteArray()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(out);
+        assertEquals(hex, toHex(out.toByteArray()));
+        ByteBuffer buf = ByteBuffer.allocate(serializer.getSize());
+        serializer.writeTo(buf);
+        assertEquals(hex, toHex(buf.array()));
+
+        // Decode bytes back
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        new CborParser().parse(serializer.toByteArray(), builder);
+        assertEquals(obj, builder.getTop());
+    }
+
+}
@@ -0,0 +1,177 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonArray;
+import org.ubimix.commons.json.JsonObject;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class CompactJsonParserTest extends TestCase {
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    /**
+     * @param name
+     */
+    public CompactJsonParserTest(String name) {
+        super(name);
+    }
+
+    private byte[] encode(Object value) {
+        CompactJsonSerializer serializer = new CompactJsonSerializer();
+        new JsonObjectVisitor().visit(value, serializer);
+        return serializer.toByteArray();
+    }
+
+    public void test() {
+        test("{}");
+        test("[]");
+        test("[[],{},[[{}]]]");
+        test("{a:1,b:[2,3],c:{a:4,b:{c:null}}}");
+        test("[{id:1,name:x},{id:2,name:y},{name:z,id:3,extra:true}]");
+        test("[0,127,128,-1,2147483647,-2147483648,"
+            + "2147483648,-9223372036854775808,9223372036854775807]");
+        test("[0.5,-1.1e300,4.9e-324,1e22,false,true,null]");
+        test("{'':'','ключ':'Маша été 漢字 😀',"
+            + "\"a\\\"b\":'\\n\\t'}");
+    }
+
+    private void test(String json) {
+        Object control = JsonAccessor.getInstance().parse(json);
+        byte[] array = encode(control);
+
+        // Trees
+        CompactJsonParser parser = new CompactJsonParser();
+        assertEquals(control, parser.parse(array));
+        // The parser can be re-used
+        assertEquals(control, parser.parse(array));
+
+        // Listener calls
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(array, serializer);
+        TestSerializer controlSerializer = new TestSerializer();
+        new JsonParser().parse(json, controlSerializer);
+        assertEquals(controlSerializer.toString(), serializer.toString());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(array.length + 2);
+        direct.put(new byte[] { 1, 2 }).put(array).flip().position(2);
+        serializer = new TestSerializer();
+        parser.parse(direct, serializer);
+        assertEquals(controlSerializer.toString(), serializer.toString());
+        assertEquals(2, direct.position());
+    }
+
+    public void testDictionary() {
+        Object value = JsonAccessor.getInstance().parse(
+            "[{name:a,value:1},{name:b,value:2},{value:3,name:c}]");
+        byte[] array = encode(value);
+        int count = 0;
+        for (int i = 0; i + 4 < array.length; i++) {
+            if (new String(array, i, 4).equals("name")) {
+                count++;
+            }
+        }
+        assertEquals(1, count);
+
+        JsonObject obj = JsonObject.newValue(new CompactJsonParser()
+            .parse(encode(JsonAccessor
+                .getInstance()
+                .parse("{a:{b:[1,2]}}"))));
+        JsonObject a = obj.getObject("a", JsonObject.FACTORY);
+        assertEquals(2, a.getArray("b", false).getInteger(1, 0));
+    }
+
+    public void testLongStrings() {
+        StringBuilder buf = new StringBuilder();
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < 3000; i++) {
+            buf.append((char) ('a' + i % 26));
+            if (i % 511 == 0 || (i >= 1020 && i <= 1030)) {
+                array.addValue(buf.toString());
+                array.addValue(buf.toString() + "été");
+                array.addValue("x");
+            }
+        }
+        Object control = array.getJsonObject();
+        CompactJsonParser parser = new CompactJsonParser();
+        byte[] data = encode(control);
+        assertEquals(control, parser.parse(data));
+        assertEquals(control, parser.parse(data));
+    }
+
+    public void testMalformed() {
+        byte[] array = encode(JsonAccessor.getInstance().parse(
+            "{a:[1,'xyz',2.5],b:{c:d}}"));
+        for (int len = 0; len < array.length; len++) {
+            try {
+                new CompactJsonParser().parse(array, 0, len);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        array[0] = 2;
+        try {
+            new CompactJsonParser().parse(array);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testScalars() {
+        Object[] values = {
+            Boolean.TRUE,
+            Boolean.FALSE,
+            Integer.valueOf(5),
+            Integer.valueOf(-5),
+            Long.valueOf(5),
+            Double.valueOf(5),
+            "five" };
+        for (Object value : values) {
+            CompactJsonSerializer serializer = new CompactJsonSerializer();
+            new JsonObjectVisitor().visit(value, true, serializer);
+            assertEquals(value, new CompactJsonParser().parse(serializer
+                .toByteArray()));
+        }
+        CompactJsonSerializer serializer = new CompactJsonSerializer();
+        serializer.onValue((String) null);
+        assertNull(new CompactJsonParser().parse(serializer.toByteArray()));
+    }
+
+}
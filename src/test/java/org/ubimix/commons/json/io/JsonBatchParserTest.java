@@ -0,0 +1,177 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonBatchParserTest extends TestCase {
+
+    private ExecutorService fExecutor;
+
+    /**
+     * @param name
+     */
+    public JsonBatchParserTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        fExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void test() throws Exception {
+        List<Object> documents = new ArrayList<Object>();
+        List<Object> control = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            String str = "{id:"
+                + i
+                + ",name:'Маша "
+                + i
+                + "',list:["
+                + i
+                + ",{}]}";
+            if (i % 10 == 0) {
+                str = "";
+            } else if (i % 7 == 0) {
+                str = "[" + str + "," + str + "]";
+            }
+            documents.add(i % 2 == 0 ? str : str.getBytes("UTF-8"));
+            control.add(JsonAccessor.getInstance().parse(str));
+        }
+        for (int workers = 1; workers < 10; workers += 4) {
+            JsonBatchParser parser = new JsonBatchParser(
+                fExecutor,
+                JsonAccessor.getInstance(),
+                workers);
+            assertEquals(control, parser.parseAll(documents));
+
+            List<Future<Object>> results = parser.submitAll(documents);
+            assertEquals(control.size(), results.size());
+            for (int i = 0; i < control.size(); i++) {
+                assertEquals(control.get(i), results.get(i).get());
+            }
+        }
+        JsonBatchParser parser = new JsonBatchParser(fExecutor);
+        assertTrue(parser.parseAll(new ArrayList<Object>()).isEmpty());
+    }
+
+    public void testError() throws Exception {
+        JsonBatchParser parser = new JsonBatchParser(fExecutor);
+        List<?> documents = Arrays.asList("{a:1}", Integer.valueOf(1), "[]");
+        try {
+            parser.parseAll(documents);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testMalformed() throws Exception {
+        JsonBatchParser parser = new JsonBatchParser(fExecutor);
+        List<?> documents = Arrays.asList("[}", "{a:[}]}", "[{\"\":1}]");
+        List<Future<Object>> results = parser.submitAll(documents);
+        for (int i = 0; i < documents.size(); i++) {
+            Object control = JsonAccessor.getInstance().parse(
+                (String) documents.get(i));
+            assertEquals(control, results.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public void testNested() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final JsonBatchParser parser = new JsonBatchParser(
+                executor,
+                JsonAccessor.getInstance(),
+                4);
+            final List<?> documents = Arrays.asList("{a:1}", "[b]", "{}");
+            // The only thread of the executor waits for the batch
+            Future<List<Object>> result = executor
+                .submit(new Callable<List<Object>>() {
+                    public List<Object> call() throws Exception {
+                        return parser.parseAll(documents);
+                    }
+                });
+            List<Object> list = result.get(10, TimeUnit.SECONDS);
+            assertEquals(3, list.size());
+            assertEquals(
+                JsonAccessor.getInstance().parse("[b]"),
+                list.get(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRejected() throws Exception {
+        List<Object> documents = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            documents.add("{id:" + i + "}");
+        }
+        // This executor accepts only one task
+        final AtomicInteger accepted = new AtomicInteger();
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                if (accepted.getAndIncrement() > 0) {
+                    throw new RejectedExecutionException();
+                }
+                fExecutor.execute(command);
+            }
+        };
+        JsonBatchParser parser = new JsonBatchParser(
+            executor,
+            JsonAccessor.getInstance(),
+            4);
+        List<Object> list = parser.parseAll(documents);
+        assertEquals(documents.size(), list.size());
+        assertEquals(JsonAccessor.getInstance().parse("{id:99}"), list.get(99));
+
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        parser = new JsonBatchParser(stopped, JsonAccessor.getInstance(), 4);
+        list = parser.parseAll(documents);
+        assertEquals(documents.size(), list.size());
+        List<Future<Object>> results = parser.submitAll(documents);
+        assertEquals(
+            JsonAccessor.getInstance().parse("{id:5}"),
+            results.get(5).get(10, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,200 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.AbstractJsonParser;
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonFeedParserTest extends TestCase {
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        private AbstractJsonParser fParser;
+
+        @Override
+        public void beginObjectProperty(String property) {
+            super.beginObjectProperty(property);
+            if (fParser != null && property.startsWith("skip")) {
+                fParser.skipValue();
+            }
+        }
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    /**
+     * @param name
+     */
+    public JsonFeedParserTest(String name) {
+        super(name);
+    }
+
+    private String parse(String str) {
+        JsonParser parser = new JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(str, serializer);
+        return serializer.toString();
+    }
+
+    public void test() throws Exception {
+        test("");
+        test("{}");
+        test("[ ]");
+        test("{a:null}");
+        test("{a:[123, null, 0.5, hello, 12345678901, true]}");
+        test("{x: 'abc\\u003Cfoo\\u003Ecde\\n' }");
+        test("  {  'A'  :  { 'x' : 'X' } , y:Y, \"z\" : Z  }  ");
+        test("{first: { name: [x, y, {first: { name: [x, y] } } ] }}");
+        test("{\"name\":\"Маша été\"}");
+        test("{\"файл\":[\"€\",\"漢字\"]}");
+        test("{\"emoji\":\"a😀b𝄞\"}");
+        test("{'a\\'b\\u0041':'x\\\\y\\'z\\u0041\\u00e9\\q', b\\:c : d\\,e }");
+        test("['\\u00', '\\u12x3', \\u0041bc, 1\\2]");
+        // Not finished documents
+        test("{a:[1,2");
+        test("{a:'x");
+        test("[12");
+        // Mismatched brackets and empty names
+        test("[}");
+        test("{a:[}]}");
+        test("[{\"\":1}]");
+        test("{'':{\"\":[]}, \"\":'x'}");
+    }
+
+    private void test(String str) throws UnsupportedEncodingException {
+        String control = parse(str);
+        byte[] array = str.getBytes("UTF-8");
+        TestSerializer serializer = new TestSerializer();
+        JsonFeedParser parser = new JsonFeedParser(serializer, 16);
+        for (int size = 1; size < 8; size++) {
+            serializer = new TestSerializer();
+            parser.reset(serializer);
+            for (int i = 0; i < array.length; i += size) {
+                int len = Math.min(size, array.length - i);
+                parser.feed(array, i, len);
+            }
+            parser.endOfInput();
+            assertEquals(control, serializer.toString());
+        }
+    }
+
+    public void testLongTokens() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            buf.append((char) ('a' + i % 26));
+            if (i % 100 == 0) {
+                buf.append("\\u00e9\\n");
+            }
+        }
+        String str = "{a:'"
+            + buf
+            + "', skip:['"
+            + buf
+            + "'], b:"
+            + buf
+            + ", skipNext:"
+            + buf
+            + "}";
+        final int[] counter = { 0 };
+        TestSerializer serializer = new TestSerializer();
+        JsonFeedParser parser = new JsonFeedParser(serializer) {
+            @Override
+            protected char getChar() {
+                counter[0]++;
+                return super.getChar();
+            }
+        };
+        serializer.fParser = parser;
+        byte[] array = str.getBytes("UTF-8");
+        for (int i = 0; i < array.length; i += 7) {
+            parser.feed(array, i, Math.min(7, array.length - i));
+        }
+        parser.endOfInput();
+        TestSerializer control = new TestSerializer();
+        JsonParser controlParser = new JsonParser();
+        control.fParser = controlParser;
+        controlParser.parse(str, control);
+        assertEquals(control.toString(), serializer.toString());
+        // Tokens interrupted by the end of chunks are not read again
+        assertTrue(counter[0] < array.length * 4);
+    }
+
+    public void testSkipValue() throws Exception {
+        String str = "{a:[1, {skip:[1,'\\']',{}], b:2}], "
+            + "skip:'x}', \"skipNext\":{\"c\":\"]\"}, skipToken:a\\,b, d:4}";
+        JsonParser control = new JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        serializer.fParser = control;
+        control.parse(str, serializer);
+        String result = serializer.toString();
+        assertEquals("{\"a\":[1,{\"skip\":,\"b\":2}],"
+            + "\"skip\":,\"skipNext\":,\"skipToken\":,\"d\":4}", result);
+
+        byte[] array = str.getBytes("UTF-8");
+        serializer = new TestSerializer();
+        JsonFeedParser parser = new JsonFeedParser(serializer);
+        serializer.fParser = parser;
+        for (int i = 0; i < array.length; i++) {
+            parser.feed(array, i, 1);
+        }
+        parser.endOfInput();
+        assertEquals(result, serializer.toString());
+    }
+
+    public void testIncremental() throws Exception {
+        TestSerializer serializer = new TestSerializer();
+        JsonFeedParser parser = new JsonFeedParser(serializer);
+        parser.feed(ByteBuffer.wrap("{\"a\":[12".getBytes("UTF-8")));
+        // The number can be continued in the next chunk
+        assertEquals("{\"a\":[", serializer.toString());
+        ByteBuffer buf = ByteBuffer.wrap("3,\"x\"]".getBytes("UTF-8"));
+        parser.feed(buf);
+        assertFalse(buf.hasRemaining());
+        assertEquals("{\"a\":[123,\"x\"]", serializer.toString());
+        assertFalse(parser.isFinished());
+        parser.feed(ByteBuffer.wrap("} [1]".getBytes("UTF-8")));
+        assertTrue(parser.isFinished());
+        assertEquals("{\"a\":[123,\"x\"]}", serializer.toString());
+        parser.endOfInput();
+        assertEquals("{\"a\":[123,\"x\"]}", serializer.toString());
+        try {
+            parser.feed(ByteBuffer.wrap(new byte[] { '1' }));
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+}
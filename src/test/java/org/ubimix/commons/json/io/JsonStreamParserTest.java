@@ -0,0 +1,146 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonStreamParserTest extends TestCase {
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    /**
+     * @param name
+     */
+    public JsonStreamParserTest(String name) {
+        super(name);
+    }
+
+    private String parse(String str) {
+        JsonParser parser = new JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(str, serializer);
+        return serializer.toString();
+    }
+
+    public void test() throws IOException {
+        test("");
+        test("{}");
+        test("  {    }    ");
+        test("{a:null}");
+        test("{a:,b:x,c:}");
+        test("{a:[123, null, 0.5, hello, 12345678901, true]}");
+        test("{x: 'abc\\u003Cfoo\\u003Ecde' }");
+        test("  {  'A'  :  { 'x' : 'X' } , y:Y, \"z\" : Z  }  ");
+        test("{ a : 'gklm qsdg qm \\n qsdkgk \\n\\n\\nqsldgjmqsdgqsdg'}");
+        test(" qdsgqsdg { x: [ y ");
+        test("{first: { name: [x, y, {first: { name: [x, y] } } ] }}");
+        test("{\"rdf:RDF\":["
+            + "{\"rdf:id\":\"toto:model\"},"
+            + "{"
+            + "\"rdf:id\":\"toto:person1\","
+            + "\"firstName\":\"John\","
+            + "\"lastName\":\"Smith\","
+            + "\"livesIn\":\"toto:city1\""
+            + "}"
+            + "]}");
+    }
+
+    private void test(String str) throws IOException {
+        String control = parse(str);
+        for (int size = 1; size < 8; size++) {
+            JsonStreamParser parser = new JsonStreamParser(size);
+            TestSerializer serializer = new TestSerializer();
+            parser.parse(new StringReader(str), serializer);
+            assertEquals(control, serializer.toString());
+        }
+        JsonStreamParser parser = new JsonStreamParser();
+        TestSerializer serializer = new TestSerializer();
+        byte[] array = str.getBytes("UTF-8");
+        parser.parse(new ByteArrayInputStream(array), serializer);
+        assertEquals(control, serializer.toString());
+    }
+
+    public void testError() {
+        Reader reader = new StringReader("{a:[1,2,3,4,5,6]}") {
+            private int fCount;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (fCount++ > 2) {
+                    throw new IOException("Broken stream");
+                }
+                return super.read(cbuf, off, len);
+            }
+        };
+        JsonStreamParser parser = new JsonStreamParser(4);
+        TestSerializer serializer = new TestSerializer();
+        try {
+            parser.parse(reader, serializer);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Broken stream", e.getMessage());
+        }
+        assertEquals("{\"a\":[1,2,3,4]}", serializer.toString());
+    }
+
+    public void testParseNext() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            buf.append("{\"id\":").append(i).append(",\"v\":\"x\"}\n");
+        }
+        JsonStreamParser parser = new JsonStreamParser(16);
+        parser.reset(new StringReader(buf.toString()));
+        TestSerializer serializer = new TestSerializer();
+        int count = 0;
+        while (parser.parseNext(serializer)) {
+            count++;
+        }
+        assertEquals(100, count);
+        assertEquals(buf.toString().replace("\n", ""), serializer.toString());
+    }
+
+    public void testUnicode() throws IOException {
+        String str = "{\"name\":\"Маша été\"}";
+        test(str);
+        assertEquals(str, parse(str));
+    }
+
+}
@@ -0,0 +1,107 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonArray;
+import org.ubimix.commons.json.JsonObject;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class JsonStreamSerializerTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public JsonStreamSerializerTest(String name) {
+        super(name);
+    }
+
+    public void test() throws Exception {
+        test("{}");
+        test("[1,2.5,true,null,'a\\\\b\\\"c\\nd']");
+        test("{a:{b:[x,{c:d}]},'ключ':'Маша été 漢字 😀'}");
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            buf.append((char) ('a' + i % 26));
+            if (i % 100 == 0) {
+                buf.append("\\\\n\\\\\\\"");
+            }
+        }
+        test("{big:'" + buf + "', list:['" + buf + "', x]}");
+    }
+
+    private void test(String str) throws Exception {
+        Object obj = JsonAccessor.getInstance().parse(str);
+        for (int ident = 0; ident < 3; ident += 2) {
+            final StringBuilder control = new StringBuilder();
+            JsonSerializer serializer = new JsonSerializer(ident) {
+                @Override
+                protected void print(String string) {
+                    control.append(string);
+                }
+            };
+            new JsonObjectVisitor().visit(obj, serializer);
+
+            StringWriter writer = new StringWriter();
+            new JsonStreamSerializer(writer, ident).write(obj);
+            assertEquals(control.toString(), writer.toString());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new JsonStreamSerializer(out, ident).write(JsonObject
+                .newValue(obj));
+            assertEquals(control.toString(), out.toString("UTF-8"));
+        }
+    }
+
+    public void testError() {
+        Writer writer = new Writer() {
+            @Override
+            public void close() throws IOException {
+            }
+
+            @Override
+            public void flush() throws IOException {
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len)
+                throws IOException {
+                throw new IOException("Test");
+            }
+        };
+        JsonArray array = new JsonArray();
+        array.addValue("x");
+        try {
+            new JsonStreamSerializer(writer).write(array);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Test", e.getMessage());
+        }
+    }
+
+}
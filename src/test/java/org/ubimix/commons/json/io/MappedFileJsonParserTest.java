@@ -0,0 +1,113 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonObject;
+import org.ubimix.commons.json.JsonObjectBuilder;
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class MappedFileJsonParserTest extends TestCase {
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    private File fFile;
+
+    /**
+     * @param name
+     */
+    public MappedFileJsonParserTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        fFile = File.createTempFile("json", ".json");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fFile.delete();
+        super.tearDown();
+    }
+
+    public void test() throws IOException {
+        test("");
+        test("{}");
+        test("{a:[123, null, 0.5, hello, 12345678901, true]}");
+        test("{first: { name: [x, y, {first: { name: [x, y] } } ] }}");
+        test("{\"name\":\"Маша été\",\"emoji\":\"a😀b𝄞\"}");
+    }
+
+    private void test(String str) throws IOException {
+        FileOutputStream out = new FileOutputStream(fFile);
+        try {
+            out.write(str.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        TestSerializer control = new TestSerializer();
+        new JsonParser().parse(str, control);
+        for (int size = 4; size < 10; size++) {
+            TestSerializer serializer = new TestSerializer();
+            new MappedFileJsonParser(size).parse(fFile, serializer);
+            assertEquals(control.toString(), serializer.toString());
+        }
+        TestSerializer serializer = new TestSerializer();
+        new MappedFileJsonParser().parse(fFile, serializer);
+        assertEquals(control.toString(), serializer.toString());
+    }
+
+    public void testBuilder() throws IOException {
+        FileOutputStream out = new FileOutputStream(fFile);
+        try {
+            out.write("{\"id\":123,\"name\":\"Маша\"}".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        JsonObjectBuilder builder = new JsonObjectBuilder();
+        new MappedFileJsonParser(5).parse(fFile, builder);
+        JsonObject obj = JsonObject.FACTORY.newValue(builder.getTop());
+        assertEquals(123, obj.getInteger("id", 0));
+        assertEquals("Маша", obj.getString("name"));
+    }
+
+}
@@ -0,0 +1,73 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonParser;
+
+/**
+ * @author kotelnikov
+ */
+public class MessagePackSerializerTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public MessagePackSerializerTest(String name) {
+        super(name);
+    }
+
+    public void test() {
+        test("{a:1,b:[2,3]}", "82a16101a162920203");
+        test("{}", "80");
+        test("[[],[[]]]", "92909190");
+        test("[0,127,-1,-32,-33,128,-129,256,65536]", "99007fffe0d0df"
+            + "cc80d1ff7fcd0100ce00010000");
+        test("[4294967296,-2147483649]", "92cf0000000100000000"
+            + "d3ffffffff7fffffff");
+        test("[true,false,null,1.5,1.1]", "95c3c2c0ca3fc00000"
+            + "cb3ff199999999999a");
+        test("['','ü水😀']", "92a0a9c3bce6b0b4f09f9880");
+
+        // Containers and strings with long headers
+        StringBuilder json = new StringBuilder("[");
+        StringBuilder hex = new StringBuilder("dc0014");
+        for (int i = 0; i < 20; i++) {
+            json.append(i > 0 ? "," : "").append(i);
+            hex.append(i < 16 ? "0" : "1").append(
+                Integer.toHexString(i % 16));
+        }
+        json.append("]");
+        test(json.toString(), hex.toString());
+        String str = json.toString();
+        test("{x:['" + str + "', " + str + "]}", "81a17892d9"
+            + Integer.toHexString(str.length())
+            + CborSerializerTest.toHex(str.getBytes())
+            + hex);
+    }
+
+    private void test(String json, String hex) {
+        MessagePackSerializer serializer = new MessagePackSerializer();
+        new JsonParser().parse(json, serializer);
+        assertEquals(hex, CborSerializerTest.toHex(serializer.toByteArray()));
+        serializer.reset();
+        new JsonParser().parse(json, serializer);
+        assertEquals(hex, CborSerializerTest.toHex(serializer.toByteArray()));
+    }
+
+}
@@ -0,0 +1,113 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonArray;
+
+/**
+ * @author kotelnikov
+ */
+public class ParallelJsonParserTest extends TestCase {
+
+    private ExecutorService fExecutor;
+
+    /**
+     * @param name
+     */
+    public ParallelJsonParserTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        fExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void test() throws Exception {
+        test("");
+        test("{a:[1,2,3]}");
+        test("[]");
+        test("[ ]");
+        test("[1,2,3,]");
+        test("[1,2,3");
+        test("[}");
+        test("[{a:[}]}, 1]");
+        test("[{\"\":1}, {\"\":2}, 3]");
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) {
+                buf.append(",\n");
+            }
+            buf.append("{\"id\":").append(i);
+            buf.append(",\"text\":\"a, b ] \\\" } c\"");
+            buf.append(",name:it's");
+            buf.append(",'list':[").append(i).append(",[x,'y,]'],{}]");
+            buf.append("}");
+        }
+        buf.append("]");
+        test(buf.toString());
+    }
+
+    private void test(String str) throws InterruptedException {
+        Object control = JsonAccessor.getInstance().parse(str);
+        for (int size = 1; size < 1000; size *= 5) {
+            ParallelJsonParser parser = new ParallelJsonParser(
+                fExecutor,
+                JsonAccessor.getInstance(),
+                size);
+            assertEquals(control, parser.parse(str));
+        }
+    }
+
+    public void testEscapedSeparators() throws Exception {
+        test("[a\\,b]");
+        test("[a\\], b]");
+        test("[x, a\\\\, b\\], c\\}, \\{d, \\\"e, f]");
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                buf.append(",");
+            }
+            buf.append("{a:x\\,").append(i).append("\\]\\}");
+            buf.append(",b:[\\[y\\,z]}");
+        }
+        buf.append("]");
+        test(buf.toString());
+    }
+
+    public void testParseArray() throws Exception {
+        ParallelJsonParser parser = new ParallelJsonParser(fExecutor);
+        JsonArray array = parser.parseArray("[1, 'a', {b:c}]");
+        assertEquals(3, array.getSize());
+        assertEquals("a", array.getString(1));
+        assertNull(parser.parseArray("{a:b}"));
+    }
+
+}
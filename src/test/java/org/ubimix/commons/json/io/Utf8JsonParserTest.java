@@ -0,0 +1,212 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonParser;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class Utf8JsonParserTest extends TestCase {
+
+    /**
+     * This parser splits the input in small chunks to check that characters
+     * split between buffers are correctly decoded.
+     */
+    private static class ChunkedParser extends Utf8JsonParser {
+
+        private final byte[] fArray;
+
+        private final int fChunkSize;
+
+        /**
+         * The offset in the array corresponding to the index 0 of the current
+         * buffer
+         */
+        private int fBase;
+
+        public ChunkedParser(byte[] array, int chunkSize) {
+            fArray = array;
+            fChunkSize = chunkSize;
+        }
+
+        @Override
+        protected ByteBuffer nextBuffer(ByteBuffer buf, int pos) {
+            int offset = fBase + pos;
+            if (offset >= fArray.length) {
+                return null;
+            }
+            int len = Math.max(fChunkSize, buf.limit() - pos + 1);
+            len = Math.min(len, fArray.length - offset);
+            // Non-zero position to check that positions are respected
+            ByteBuffer result = ByteBuffer.allocate(len + 1);
+            result.position(1);
+            result.put(fArray, offset, len);
+            result.position(1);
+            fBase = offset - 1;
+            return result;
+        }
+
+        public void parse(TestSerializer serializer) {
+            fBase = 0;
+            parse(ByteBuffer.allocate(0), serializer);
+        }
+    }
+
+    private static class TestSerializer extends JsonSerializer {
+
+        private final StringBuilder fBuf = new StringBuilder();
+
+        @Override
+        protected void print(String string) {
+            fBuf.append(string);
+        }
+
+        @Override
+        public String toString() {
+            return fBuf.toString();
+        }
+    }
+
+    /**
+     * @param name
+     */
+    public Utf8JsonParserTest(String name) {
+        super(name);
+    }
+
+    private String parse(String str) {
+        JsonParser parser = new JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(str, serializer);
+        return serializer.toString();
+    }
+
+    public void test() throws Exception {
+        test("");
+        test("{}");
+        test("{a:null}");
+        test("{a:[123, null, 0.5, hello, 12345678901, true]}");
+        test("{x: 'abc\\u003Cfoo\\u003Ecde' }");
+        test("  {  'A'  :  { 'x' : 'X' } , y:Y, \"z\" : Z  }  ");
+        test("{first: { name: [x, y, {first: { name: [x, y] } } ] }}");
+        test("{\"name\":\"Маша été\"}");
+        test("{\"файл\":[\"€\",\"漢字\"]}");
+        test("{\"emoji\":\"a😀b𝄞\"}");
+        test("﻿{\"bom\":true}");
+    }
+
+    private void test(String str) throws UnsupportedEncodingException {
+        String control = parse(str);
+        byte[] array = str.getBytes("UTF-8");
+
+        Utf8JsonParser parser = new Utf8JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(array, serializer);
+        assertEquals(control, serializer.toString());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(array.length);
+        direct.put(array);
+        direct.flip();
+        serializer = new TestSerializer();
+        parser.parse(direct, serializer);
+        assertEquals(control, serializer.toString());
+        assertEquals(0, direct.position());
+
+        for (int size = 1; size < 6; size++) {
+            serializer = new TestSerializer();
+            new ChunkedParser(array, size).parse(serializer);
+            assertEquals(control, serializer.toString());
+        }
+    }
+
+    public void testLongStrings() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        buf.append("{\"text\":[");
+        String[] parts = {
+            "abc",
+            "\\\"",
+            "Маша",
+            "\\n",
+            "'",
+            "😀",
+            "\\u0041" };
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) {
+                buf.append(",");
+            }
+            buf.append("\"");
+            for (int j = 0; j < i; j++) {
+                buf.append((char) ('a' + j % 26));
+            }
+            buf.append(parts[i % parts.length]);
+            for (int j = 0; j < i % 11; j++) {
+                buf.append("0123456789");
+            }
+            buf.append("\"");
+        }
+        buf.append("], 'single':'x\"yzyzyzyzyzyz\"x'}");
+        String str = buf.toString();
+        test(str);
+
+        // Words are read according to the byte order of the buffer
+        byte[] array = str.getBytes("UTF-8");
+        ByteBuffer little = ByteBuffer.wrap(array);
+        little.order(ByteOrder.LITTLE_ENDIAN);
+        TestSerializer serializer = new TestSerializer();
+        new Utf8JsonParser().parse(little, serializer);
+        assertEquals(parse(str), serializer.toString());
+
+        // Runs are copied from slices, read-only and direct buffers
+        for (int i = 0; i < 300; i++) {
+            buf.append("0123456789");
+        }
+        buf.append("\"]");
+        str = "[\"" + buf.toString().replace("\"", "'");
+        array = ("xx" + str).getBytes("UTF-8");
+        ByteBuffer wrapper = ByteBuffer.wrap(array);
+        wrapper.position(2);
+        ByteBuffer[] buffers = {
+            wrapper.slice(),
+            wrapper.asReadOnlyBuffer(),
+            ByteBuffer.allocateDirect(array.length - 2).put(wrapper.slice()) };
+        buffers[2].flip();
+        for (ByteBuffer b : buffers) {
+            serializer = new TestSerializer();
+            new Utf8JsonParser().parse(b, serializer);
+            assertEquals(parse(str), serializer.toString());
+        }
+    }
+
+    public void testMalformed() {
+        byte[] array = { '[', '"', 'a', (byte) 0xC3, '"', ',', '"',
+            (byte) 0xFF, 'b', '"', ',', '"', (byte) 0xE2, (byte) 0x82 };
+        Utf8JsonParser parser = new Utf8JsonParser();
+        TestSerializer serializer = new TestSerializer();
+        parser.parse(array, serializer);
+        assertEquals("[\"a�\",\"�b\",\"��\"]", serializer
+            .toString());
+    }
+
+}
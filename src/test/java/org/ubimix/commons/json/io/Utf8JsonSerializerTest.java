@@ -0,0 +1,191 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.json.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.json.JsonAccessor;
+import org.ubimix.commons.json.JsonArray;
+import org.ubimix.commons.json.JsonObject;
+import org.ubimix.commons.json.JsonObjectVisitor;
+import org.ubimix.commons.json.JsonSerializer;
+
+/**
+ * @author kotelnikov
+ */
+public class Utf8JsonSerializerTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public Utf8JsonSerializerTest(String name) {
+        super(name);
+    }
+
+    public void test() throws Exception {
+        test("{}");
+        test("[1,2.5,true,null,'a\\\\b\\\"c\\nd']");
+        test("{a:{b:[x,{c:d}]},'ключ':'Маша été 漢字 😀'}");
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            buf.append((char) ('a' + i % 26));
+            if (i % 100 == 0) {
+                buf.append("é😀\\\\n");
+            }
+        }
+        test("{big:'" + buf + "', list:['" + buf + "', x]}");
+    }
+
+    private void test(String str) throws Exception {
+        Object obj = JsonAccessor.getInstance().parse(str);
+        for (int ident = 0; ident < 3; ident += 2) {
+            test(obj, ident, new ByteBufferPool(256, 4, false));
+            test(obj, ident, new ByteBufferPool(256, 4, true));
+        }
+    }
+
+    private void test(Object obj, int ident, ByteBufferPool pool)
+        throws Exception {
+        final StringBuilder control = new StringBuilder();
+        JsonSerializer printer = new JsonSerializer(ident) {
+            @Override
+            protected void print(String string) {
+                control.append(string);
+            }
+        };
+        new JsonObjectVisitor().visit(obj, printer);
+        byte[] controlBytes = control.toString().getBytes("UTF-8");
+
+        Utf8JsonSerializer serializer = new Utf8JsonSerializer(
+            pool,
+            ident);
+        serializer.write(obj);
+        ByteBuffer buf = serializer.getBuffer();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        assertEquals(control.toString(), new String(bytes, "UTF-8"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(Channels.newChannel(out));
+        assertEquals(controlBytes.length, out.size());
+        assertEquals(0, serializer.getBuffer().remaining());
+        serializer.release();
+
+        out = new ByteArrayOutputStream();
+        serializer = new Utf8JsonSerializer(
+            Channels.newChannel(out),
+            pool,
+            ident);
+        serializer.write(JsonObject.newValue(obj));
+        serializer.release();
+        assertEquals(control.toString(), out.toString("UTF-8"));
+    }
+
+    public void testChunks() throws Exception {
+        final int[] max = { 0 };
+        ByteBufferPool pool = new ByteBufferPool(256, 4, false) {
+            @Override
+            public ByteBuffer acquire(int capacity) {
+                max[0] = Math.max(max[0], capacity);
+                return super.acquire(capacity);
+            }
+        };
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            buf.append(i % 3 == 0 ? "\uD83D\uDE00" : "ab\u00e9\u6f22");
+        }
+        JsonArray array = new JsonArray();
+        array.addValue(buf.toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8JsonSerializer serializer = new Utf8JsonSerializer(Channels
+            .newChannel(out), pool, 0);
+        serializer.write(array);
+        serializer.release();
+        // Long strings are written by chunks in pooled buffers
+        assertTrue(max[0] <= 256);
+        assertEquals(
+            "[\"" + buf + "\"]",
+            new String(out.toByteArray(), "UTF-8"));
+    }
+
+    public void testError() {
+        WritableByteChannel channel = new WritableByteChannel() {
+            public void close() throws IOException {
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("Test");
+            }
+        };
+        JsonArray array = new JsonArray();
+        array.addValue("x");
+        try {
+            new Utf8JsonSerializer(channel, new ByteBufferPool(), 0)
+                .write(array);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Test", e.getMessage());
+        }
+
+        // Channels which do not accept bytes are not polled
+        channel = new WritableByteChannel() {
+            public void close() throws IOException {
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public int write(ByteBuffer src) throws IOException {
+                return 0;
+            }
+        };
+        try {
+            new Utf8JsonSerializer(channel, new ByteBufferPool(), 0)
+                .write(array);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    public void testPool() {
+        ByteBufferPool pool = new ByteBufferPool(16, 1, false);
+        ByteBuffer first = pool.acquire(10);
+        assertEquals(16, first.capacity());
+        first.put((byte) 1);
+        pool.release(first);
+        ByteBuffer second = pool.acquire(16);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        ByteBuffer big = pool.acquire(100);
+        assertEquals(100, big.capacity());
+        pool.release(big);
+        pool.release(second);
+        assertSame(second, pool.acquire(1));
+        assertNotSame(second, pool.acquire(1));
+    }
+
+}